@@ -0,0 +1,93 @@
+package com.filestore.benchmark;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.filestore.model.dto.FileInfoResponse;
+import com.filestore.model.entity.FileMetadata;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+// Covers what a download does per request with metadata: build, Redis JSON round trip and /info mapping
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class FileMetadataMappingBenchmark {
+
+    private final ObjectMapper objectMapper = Jackson2ObjectMapperBuilder.json().build();
+
+    private FileMetadata metadata;
+    private String json;
+
+    @Setup
+    public void setup() throws JsonProcessingException {
+        metadata = build();
+        json = objectMapper.writeValueAsString(metadata);
+    }
+
+    @Benchmark
+    public FileMetadata builder() {
+        return build();
+    }
+
+    @Benchmark
+    public String toJson() throws JsonProcessingException {
+        return objectMapper.writeValueAsString(metadata);
+    }
+
+    @Benchmark
+    public FileMetadata fromJson() throws JsonProcessingException {
+        return objectMapper.readValue(json, FileMetadata.class);
+    }
+
+    @Benchmark
+    @Threads(8)
+    public FileMetadata fromJsonContended() throws JsonProcessingException {
+        return objectMapper.readValue(json, FileMetadata.class);
+    }
+
+    @Benchmark
+    public FileInfoResponse toInfoResponse() {
+        return FileInfoResponse.builder()
+                .fileName(metadata.getOriginalFileName())
+                .fileSize(metadata.getFileSize())
+                .mimeType(metadata.getMimeType())
+                .uploadDate(metadata.getUploadDate())
+                .expiryDate(metadata.getExpiryDate())
+                .downloadCount(metadata.getDownloadCount())
+                .maxDownloads(metadata.getMaxDownloads())
+                .isPasswordProtected(metadata.isPasswordProtected())
+                .isExpired(metadata.isExpired())
+                .build();
+    }
+
+    private FileMetadata build() {
+        LocalDateTime now = LocalDateTime.now();
+        return FileMetadata.builder()
+                .id(UUID.randomUUID())
+                .originalFileName("quarterly-report.pdf")
+                .fileSize(5_242_880L)
+                .mimeType("application/pdf")
+                .storageKey("uploads/3q2-x8Kd0vYc9LmZpQa1Rw.pdf")
+                .contentHash("9f86d081884c7d659a2feaa0c55ad015a3bf4f1b2b0b822cd15d6c15b0f00a08")
+                .shareToken("aB3dE5fG7hJ9")
+                .deleteToken("del_kL2mN4pQ6rS8tU0v")
+                .uploadDate(now)
+                .expiryDate(now.plusHours(24))
+                .maxDownloads(100)
+                .uploaderIp("203.0.113.7")
+                .createdAt(now)
+                .updatedAt(now)
+                .build();
+    }
+}
@@ -0,0 +1,58 @@
+package com.filestore.benchmark;
+
+import com.filestore.util.FileValidator;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class FileValidatorBenchmark {
+
+    private final FileValidator fileValidator = new FileValidator();
+
+    @Setup
+    public void setup() {
+        // Same values as application.yml
+        ReflectionTestUtils.setField(fileValidator, "maxFileSize", 104857600L);
+        ReflectionTestUtils.setField(fileValidator, "allowedExtensions",
+                List.of("pdf", "jpg", "jpeg", "png", "gif", "doc", "docx", "txt", "zip"));
+    }
+
+    @Benchmark
+    public String getFileExtension() {
+        return fileValidator.getFileExtension("quarterly-report.final.PDF");
+    }
+
+    @Benchmark
+    public void validateFile() {
+        fileValidator.validateFile("quarterly-report.final.PDF", 5_242_880L);
+    }
+
+    @Benchmark
+    @Threads(8)
+    public void validateFileContended() {
+        fileValidator.validateFile("quarterly-report.final.PDF", 5_242_880L);
+    }
+
+    // Rejections build a message and a stack trace, which is what a flood of bad uploads costs
+    @Benchmark
+    public Object validateFileRejected() {
+        try {
+            fileValidator.validateFile("payload.exe", 5_242_880L);
+            return null;
+        } catch (IllegalArgumentException e) {
+            return e;
+        }
+    }
+}
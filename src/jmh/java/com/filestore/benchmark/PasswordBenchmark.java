@@ -0,0 +1,76 @@
+package com.filestore.benchmark;
+
+import com.filestore.util.PasswordUtil;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+
+import java.util.concurrent.TimeUnit;
+
+// Each cost step doubles the work; the results size filestore.password.verify-threads for a target verify rate
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 3, time = 5)
+@Fork(1)
+public class PasswordBenchmark {
+
+    private static final String PASSWORD = "correct horse battery staple";
+
+    @Param({"8", "10", "12"})
+    private int strength;
+
+    private BCryptPasswordEncoder encoder;
+    private String hash;
+
+    @Setup
+    public void setup() {
+        encoder = new BCryptPasswordEncoder(strength);
+        hash = encoder.encode(PASSWORD);
+    }
+
+    @Benchmark
+    public String hash() {
+        return encoder.encode(PASSWORD);
+    }
+
+    @Benchmark
+    public boolean verify() {
+        return encoder.matches(PASSWORD, hash);
+    }
+
+    @Benchmark
+    @Threads(4)
+    public boolean verifyContended() {
+        return encoder.matches(PASSWORD, hash);
+    }
+
+    @State(Scope.Benchmark)
+    public static class Production {
+
+        private final PasswordUtil passwordUtil = new PasswordUtil();
+        private String hash;
+
+        @Setup
+        public void setup() {
+            hash = passwordUtil.hashPassword(PASSWORD);
+        }
+    }
+
+    // The cost factor PasswordUtil actually uses, independent of the strength parameter
+    @Benchmark
+    public boolean verifyPasswordUtil(Production production) {
+        return production.passwordUtil.verifyPassword(PASSWORD, production.hash);
+    }
+}
@@ -0,0 +1,49 @@
+package com.filestore.benchmark;
+
+import com.filestore.util.TokenGenerator;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+
+import java.util.concurrent.TimeUnit;
+
+// Every upload draws three tokens, so the shared SecureRandom is compared alone and under contention
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class TokenGeneratorBenchmark {
+
+    private final TokenGenerator tokenGenerator = new TokenGenerator();
+
+    @Benchmark
+    @Threads(1)
+    public String shareToken() {
+        return tokenGenerator.generateShareToken();
+    }
+
+    @Benchmark
+    @Threads(8)
+    public String shareTokenContended() {
+        return tokenGenerator.generateShareToken();
+    }
+
+    @Benchmark
+    @Threads(1)
+    public String uploadTokens() {
+        return tokenGenerator.generateShareToken()
+                + tokenGenerator.generateDeleteToken()
+                + tokenGenerator.generateStorageFileName("pdf");
+    }
+
+    @Benchmark
+    @Threads(8)
+    public String uploadTokensContended() {
+        return tokenGenerator.generateShareToken()
+                + tokenGenerator.generateDeleteToken()
+                + tokenGenerator.generateStorageFileName("pdf");
+    }
+}
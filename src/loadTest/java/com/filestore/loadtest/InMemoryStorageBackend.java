@@ -0,0 +1,106 @@
+package com.filestore.loadtest;
+
+import com.filestore.service.StorageBackend;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.List;
+import java.util.Map;
+import java.util.OptionalLong;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Stands in for MinIO so the load tests run offline; the latency models one S3 round trip per call
+@Service
+@ConditionalOnProperty(name = "filestore.storage.type", havingValue = "memory")
+public class InMemoryStorageBackend implements StorageBackend {
+
+    private final Map<String, byte[]> objects = new ConcurrentHashMap<>();
+
+    @Value("${filestore.storage.memory.latency-ms:0}")
+    private Long latencyMs;
+
+    @Override
+    public String uploadStream(InputStream inputStream, long size, String contentType, String storageKey) {
+        roundTrip();
+        try {
+            byte[] data = inputStream.readAllBytes();
+            if (size >= 0 && data.length != size) {
+                throw new IOException(String.format("Expected %d bytes but received %d", size, data.length));
+            }
+            objects.put(storageKey, data);
+            return storageKey;
+        } catch (IOException e) {
+            throw new RuntimeException("Error while uploading file to memory storage", e);
+        }
+    }
+
+    @Override
+    public String composeFile(List<String> sourceKeys, String storageKey, String contentType) {
+        roundTrip();
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        for (String sourceKey : sourceKeys) {
+            out.writeBytes(get(sourceKey));
+        }
+        objects.put(storageKey, out.toByteArray());
+        return storageKey;
+    }
+
+    @Override
+    public InputStream downloadFile(String storageKey) {
+        roundTrip();
+        return new ByteArrayInputStream(get(storageKey));
+    }
+
+    @Override
+    public InputStream downloadFile(String storageKey, long offset, long length) {
+        roundTrip();
+        byte[] data = get(storageKey);
+        int start = (int) Math.min(offset, data.length);
+        return new ByteArrayInputStream(data, start, (int) Math.min(length, data.length - start));
+    }
+
+    @Override
+    public void deleteFile(String storageKey) {
+        roundTrip();
+        objects.remove(storageKey);
+    }
+
+    @Override
+    public List<String> deleteFiles(List<String> storageKeys) {
+        roundTrip();
+        storageKeys.forEach(objects::remove);
+        return List.of();
+    }
+
+    @Override
+    public OptionalLong objectSize(String storageKey) {
+        roundTrip();
+        byte[] data = objects.get(storageKey);
+        return data != null ? OptionalLong.of(data.length) : OptionalLong.empty();
+    }
+
+    private byte[] get(String storageKey) {
+        byte[] data = objects.get(storageKey);
+        if (data == null) {
+            throw new RuntimeException("Object not found in memory storage: " + storageKey);
+        }
+        return data;
+    }
+
+    private void roundTrip() {
+        if (latencyMs <= 0) {
+            return;
+        }
+        try {
+            Thread.sleep(latencyMs);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted while waiting for memory storage", e);
+        }
+    }
+}
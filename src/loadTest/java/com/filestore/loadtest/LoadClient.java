@@ -0,0 +1,73 @@
+package com.filestore.loadtest;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.concurrent.Executors;
+
+public class LoadClient {
+
+    private final HttpClient httpClient = HttpClient.newBuilder()
+            .version(HttpClient.Version.HTTP_1_1)
+            .executor(Executors.newVirtualThreadPerTaskExecutor())
+            .connectTimeout(Duration.ofSeconds(10))
+            .build();
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final String baseUrl;
+
+    public LoadClient(int port) {
+        this.baseUrl = "http://localhost:" + port + "/api";
+    }
+
+    // Returns the share token of the uploaded file
+    public String upload(byte[] body, String fileName, String password) throws IOException, InterruptedException {
+        String query = "?fileName=" + encode(fileName) + (password != null ? "&password=" + encode(password) : "");
+        HttpRequest request = HttpRequest.newBuilder(URI.create(baseUrl + "/upload/stream" + query))
+                .header("Content-Type", "application/octet-stream")
+                .POST(HttpRequest.BodyPublishers.ofByteArray(body))
+                .build();
+
+        HttpResponse<byte[]> response = httpClient.send(request, HttpResponse.BodyHandlers.ofByteArray());
+        if (response.statusCode() != 201) {
+            throw new IOException("Upload failed with status " + response.statusCode());
+        }
+
+        JsonNode json = objectMapper.readTree(response.body());
+        String shareUrl = json.get("shareUrl").asText();
+        return shareUrl.substring(shareUrl.lastIndexOf('/') + 1);
+    }
+
+    public HttpResponse<InputStream> download(String shareToken, String password, String downloadToken)
+            throws IOException, InterruptedException {
+        String query = password != null ? "?password=" + encode(password) : "";
+        HttpRequest.Builder request = HttpRequest.newBuilder(URI.create(baseUrl + "/f/" + shareToken + query)).GET();
+        if (downloadToken != null) {
+            request.header("X-Download-Token", downloadToken);
+        }
+        return httpClient.send(request.build(), HttpResponse.BodyHandlers.ofInputStream());
+    }
+
+    // Downloads the whole body and returns whether it succeeded
+    public boolean downloadFully(String shareToken, String password, String downloadToken)
+            throws IOException, InterruptedException {
+        HttpResponse<InputStream> response = download(shareToken, password, downloadToken);
+        try (InputStream body = response.body()) {
+            body.transferTo(OutputStream.nullOutputStream());
+        }
+        return response.statusCode() == 200;
+    }
+
+    private static String encode(String value) {
+        return URLEncoder.encode(value, StandardCharsets.UTF_8);
+    }
+}
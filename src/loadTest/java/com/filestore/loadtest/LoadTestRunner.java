@@ -0,0 +1,264 @@
+package com.filestore.loadtest;
+
+import com.filestore.FilestoreBackendApplication;
+import com.filestore.service.ExpiredFileReaper;
+import io.zonky.test.db.postgres.embedded.EmbeddedPostgres;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+import redis.embedded.RedisServer;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.management.ManagementFactory;
+import java.net.ServerSocket;
+import java.net.http.HttpResponse;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs the load-test scenarios against the full application in this JVM, with embedded Postgres and Redis
+ * and objects kept in memory, so results are comparable between runs without any external services.
+ *
+ * <pre>
+ * ./gradlew loadTest --args="--scenarios=hotlink,password --scale=0.5 --profile=virtual-threads"
+ * </pre>
+ */
+public class LoadTestRunner {
+
+    private static final String PASSWORD = "load-test-password";
+
+    private final LoadClient client;
+    private final ConfigurableApplicationContext context;
+    private final double scale;
+
+    private LoadTestRunner(LoadClient client, ConfigurableApplicationContext context, double scale) {
+        this.client = client;
+        this.context = context;
+        this.scale = scale;
+    }
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = parseOptions(args);
+        List<String> scenarios = Arrays.asList(options
+                .getOrDefault("scenarios", "upload,hotlink,password,password-token,slow-download,expiry")
+                .split(","));
+        double scale = Double.parseDouble(options.getOrDefault("scale", "1"));
+
+        List<String> profiles = new ArrayList<>(List.of("loadtest"));
+        if (options.containsKey("profile")) {
+            profiles.add(options.get("profile"));
+        }
+
+        int redisPort = freePort();
+        RedisServer redis = new RedisServer(redisPort);
+        redis.start();
+
+        try (EmbeddedPostgres postgres = EmbeddedPostgres.builder().start()) {
+            ConfigurableApplicationContext context = new SpringApplicationBuilder(FilestoreBackendApplication.class)
+                    .profiles(profiles.toArray(String[]::new))
+                    .properties(
+                            "server.port=0",
+                            "spring.datasource.url=" + postgres.getJdbcUrl("postgres", "postgres"),
+                            "spring.datasource.username=postgres",
+                            "spring.datasource.password=postgres",
+                            "spring.data.redis.port=" + redisPort)
+                    .run();
+
+            try {
+                int port = ((WebServerApplicationContext) context).getWebServer().getPort();
+                LoadTestRunner runner = new LoadTestRunner(new LoadClient(port), context, scale);
+
+                List<ScenarioResult> results = new ArrayList<>();
+                for (String scenario : scenarios) {
+                    results.add(runner.run(scenario.trim()));
+                }
+
+                System.out.println();
+                System.out.println("Profiles: " + String.join(",", profiles) + ", scale: " + scale);
+                System.out.println(ScenarioResult.HEADER);
+                results.forEach(System.out::println);
+            } finally {
+                context.close();
+            }
+        } finally {
+            redis.stop();
+        }
+    }
+
+    private ScenarioResult run(String scenario) throws Exception {
+        return switch (scenario) {
+            case "upload" -> uploads();
+            case "hotlink" -> hotLinkStorm();
+            case "password" -> passwordDownloads(false);
+            case "password-token" -> passwordDownloads(true);
+            case "slow-download" -> slowDownloads();
+            case "expiry" -> expirySweep();
+            default -> throw new IllegalArgumentException("Unknown scenario: " + scenario);
+        };
+    }
+
+    // Mixed sizes: mostly small documents, some images, a few large archives
+    private ScenarioResult uploads() throws Exception {
+        byte[] small = randomBytes(4 * 1024);
+        byte[] medium = randomBytes(256 * 1024);
+        byte[] large = randomBytes(4 * 1024 * 1024);
+
+        return measure("upload", scaled(2000), 64, index -> {
+            int pick = index % 20;
+            byte[] body = pick < 14 ? small : pick < 19 ? medium : large;
+            // Distinct content per upload, otherwise deduplication turns this into a metadata-only benchmark
+            client.upload(distinct(body), "load-" + index + ".zip", null);
+            return true;
+        });
+    }
+
+    // One popular link downloaded by many clients at once
+    private ScenarioResult hotLinkStorm() throws Exception {
+        String shareToken = client.upload(randomBytes(1024 * 1024), "hot.zip", null);
+
+        return measure("hotlink", scaled(20000), 200,
+                index -> client.downloadFully(shareToken, null, null));
+    }
+
+    // Without a token every request pays for BCrypt, with one only the first does
+    private ScenarioResult passwordDownloads(boolean reuseToken) throws Exception {
+        String shareToken = client.upload(randomBytes(64 * 1024), "protected.zip", PASSWORD);
+        String downloadToken = null;
+        if (reuseToken) {
+            HttpResponse<InputStream> first = client.download(shareToken, PASSWORD, null);
+            first.body().close();
+            downloadToken = first.headers().firstValue("X-Download-Token").orElseThrow();
+        }
+
+        String token = downloadToken;
+        return measure(reuseToken ? "password-token" : "password", scaled(reuseToken ? 5000 : 1000), 32,
+                index -> client.downloadFully(shareToken, token == null ? PASSWORD : null, token));
+    }
+
+    // Clients that read far slower than the server writes; compare with and without --profile=virtual-threads
+    private ScenarioResult slowDownloads() throws Exception {
+        String shareToken = client.upload(randomBytes(16 * 1024 * 1024), "slow.zip", null);
+
+        return measure("slow-download", scaled(512), 512, index -> {
+            byte[] buffer = new byte[256 * 1024];
+            HttpResponse<InputStream> response = client.download(shareToken, null, null);
+            try (InputStream body = response.body()) {
+                while (body.read(buffer) != -1) {
+                    Thread.sleep(100);
+                }
+            }
+            return response.statusCode() == 200;
+        });
+    }
+
+    // Expires a batch of files and times one reaper sweep over them
+    private ScenarioResult expirySweep() throws Exception {
+        int files = scaled(5000);
+        byte[] body = randomBytes(1024);
+        measure("expiry-setup", files, 64, index -> {
+            client.upload(distinct(body), "expiring-" + index + ".zip", null);
+            return true;
+        });
+
+        JdbcTemplate jdbcTemplate = context.getBean(JdbcTemplate.class);
+        jdbcTemplate.update("UPDATE files SET expiry_date = now() - interval '1 hour' WHERE is_deleted = false");
+        Integer before = jdbcTemplate.queryForObject("SELECT count(*) FROM files WHERE is_deleted = false", Integer.class);
+
+        ExpiredFileReaper reaper = context.getBean(ExpiredFileReaper.class);
+        long allocatedBefore = allocatedBytes();
+        long start = System.nanoTime();
+        reaper.reapExpiredFiles();
+        long elapsed = System.nanoTime() - start;
+
+        Integer after = jdbcTemplate.queryForObject("SELECT count(*) FROM files WHERE is_deleted = false", Integer.class);
+        // Files still live after the sweep are reported as errors
+        int reaped = before - after;
+        return new ScenarioResult("expiry", reaped, after, elapsed, new long[]{elapsed},
+                allocatedBytes() - allocatedBefore);
+    }
+
+    private ScenarioResult measure(String name, int operations, int concurrency, Operation operation)
+            throws InterruptedException {
+        long[] latencies = new long[operations];
+        AtomicInteger next = new AtomicInteger();
+        AtomicInteger errors = new AtomicInteger();
+
+        long allocatedBefore = allocatedBytes();
+        long start = System.nanoTime();
+
+        try (ExecutorService workers = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int i = 0; i < concurrency; i++) {
+                workers.submit(() -> {
+                    int index;
+                    while ((index = next.getAndIncrement()) < operations) {
+                        long opStart = System.nanoTime();
+                        try {
+                            if (!operation.run(index)) {
+                                errors.incrementAndGet();
+                            }
+                        } catch (Exception e) {
+                            errors.incrementAndGet();
+                        }
+                        latencies[index] = System.nanoTime() - opStart;
+                    }
+                });
+            }
+        }
+
+        long elapsed = System.nanoTime() - start;
+        return new ScenarioResult(name, operations, errors.get(), elapsed, latencies,
+                allocatedBytes() - allocatedBefore);
+    }
+
+    private int scaled(int operations) {
+        return Math.max(1, (int) (operations * scale));
+    }
+
+    // Client and server share this JVM, so the rate includes the load generator's own allocations
+    private static long allocatedBytes() {
+        return ((com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean()).getTotalThreadAllocatedBytes();
+    }
+
+    private static byte[] randomBytes(int size) {
+        byte[] bytes = new byte[size];
+        ThreadLocalRandom.current().nextBytes(bytes);
+        return bytes;
+    }
+
+    private static byte[] distinct(byte[] template) {
+        byte[] bytes = template.clone();
+        byte[] prefix = randomBytes(16);
+        System.arraycopy(prefix, 0, bytes, 0, Math.min(prefix.length, bytes.length));
+        return bytes;
+    }
+
+    private static int freePort() throws IOException {
+        try (ServerSocket socket = new ServerSocket(0)) {
+            return socket.getLocalPort();
+        }
+    }
+
+    private static Map<String, String> parseOptions(String[] args) {
+        Map<String, String> options = new LinkedHashMap<>();
+        for (String arg : args) {
+            if (arg.startsWith("--") && arg.contains("=")) {
+                options.put(arg.substring(2, arg.indexOf('=')), arg.substring(arg.indexOf('=') + 1));
+            }
+        }
+        return options;
+    }
+
+    @FunctionalInterface
+    private interface Operation {
+        boolean run(int index) throws Exception;
+    }
+}
@@ -0,0 +1,34 @@
+package com.filestore.loadtest;
+
+import java.util.Arrays;
+
+public record ScenarioResult(String name, int operations, int errors, long elapsedNanos,
+                             long[] latenciesNanos, long allocatedBytes) {
+
+    public static final String HEADER = String.format("%-18s %8s %7s %10s %9s %9s %12s",
+            "scenario", "ops", "errors", "ops/s", "p50 ms", "p99 ms", "alloc MB/s");
+
+    public double throughput() {
+        return operations * 1e9 / elapsedNanos;
+    }
+
+    public double percentileMillis(double percentile) {
+        if (latenciesNanos.length == 0) {
+            return 0;
+        }
+        long[] sorted = latenciesNanos.clone();
+        Arrays.sort(sorted);
+        int index = (int) Math.ceil(percentile / 100 * sorted.length) - 1;
+        return sorted[Math.max(0, index)] / 1e6;
+    }
+
+    public double allocationRateMbPerSecond() {
+        return allocatedBytes / 1048576d * 1e9 / elapsedNanos;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%-18s %8d %7d %10.1f %9.2f %9.2f %12.1f", name, operations, errors, throughput(),
+                percentileMillis(50), percentileMillis(99), allocationRateMbPerSecond());
+    }
+}
@@ -0,0 +1,90 @@
+package com.filestore.config;
+
+import com.filestore.job.ExpiredFileReaperJob;
+import com.filestore.job.PendingUploadReconcilerJob;
+import com.filestore.job.StorageStatsReconcilerJob;
+import com.filestore.job.UploadSessionReaperJob;
+import org.quartz.CronScheduleBuilder;
+import org.quartz.JobBuilder;
+import org.quartz.JobDetail;
+import org.quartz.Trigger;
+import org.quartz.TriggerBuilder;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+public class QuartzConfig {
+
+    @Bean
+    public JobDetail expiredFileReaperJobDetail() {
+        return JobBuilder.newJob(ExpiredFileReaperJob.class)
+                .withIdentity("expiredFileReaper")
+                .storeDurably()
+                .build();
+    }
+
+    @Bean
+    public Trigger expiredFileReaperTrigger(JobDetail expiredFileReaperJobDetail,
+                                            @Value("${filestore.reaper.cron}") String cron) {
+        return TriggerBuilder.newTrigger()
+                .forJob(expiredFileReaperJobDetail)
+                .withIdentity("expiredFileReaperTrigger")
+                .withSchedule(CronScheduleBuilder.cronSchedule(cron).withMisfireHandlingInstructionDoNothing())
+                .build();
+    }
+
+    @Bean
+    public JobDetail pendingUploadReconcilerJobDetail() {
+        return JobBuilder.newJob(PendingUploadReconcilerJob.class)
+                .withIdentity("pendingUploadReconciler")
+                .storeDurably()
+                .build();
+    }
+
+    @Bean
+    public Trigger pendingUploadReconcilerTrigger(JobDetail pendingUploadReconcilerJobDetail,
+                                                  @Value("${filestore.reconciler.cron}") String cron) {
+        return TriggerBuilder.newTrigger()
+                .forJob(pendingUploadReconcilerJobDetail)
+                .withIdentity("pendingUploadReconcilerTrigger")
+                .withSchedule(CronScheduleBuilder.cronSchedule(cron).withMisfireHandlingInstructionDoNothing())
+                .build();
+    }
+
+    @Bean
+    public JobDetail storageStatsReconcilerJobDetail() {
+        return JobBuilder.newJob(StorageStatsReconcilerJob.class)
+                .withIdentity("storageStatsReconciler")
+                .storeDurably()
+                .build();
+    }
+
+    @Bean
+    public Trigger storageStatsReconcilerTrigger(JobDetail storageStatsReconcilerJobDetail,
+                                                 @Value("${filestore.stats.reconcile-cron}") String cron) {
+        return TriggerBuilder.newTrigger()
+                .forJob(storageStatsReconcilerJobDetail)
+                .withIdentity("storageStatsReconcilerTrigger")
+                .withSchedule(CronScheduleBuilder.cronSchedule(cron).withMisfireHandlingInstructionDoNothing())
+                .build();
+    }
+
+    @Bean
+    public JobDetail uploadSessionReaperJobDetail() {
+        return JobBuilder.newJob(UploadSessionReaperJob.class)
+                .withIdentity("uploadSessionReaper")
+                .storeDurably()
+                .build();
+    }
+
+    @Bean
+    public Trigger uploadSessionReaperTrigger(JobDetail uploadSessionReaperJobDetail,
+                                              @Value("${filestore.upload.session-reaper.cron}") String cron) {
+        return TriggerBuilder.newTrigger()
+                .forJob(uploadSessionReaperJobDetail)
+                .withIdentity("uploadSessionReaperTrigger")
+                .withSchedule(CronScheduleBuilder.cronSchedule(cron).withMisfireHandlingInstructionDoNothing())
+                .build();
+    }
+}
@@ -1,19 +1,37 @@
 package com.filestore.controller;
 
+import com.filestore.model.dto.BatchUploadResponse;
+import com.filestore.model.dto.ByteRange;
 import com.filestore.model.dto.FileInfoResponse;
 import com.filestore.model.dto.UploadResponse;
+import com.filestore.service.CollectionService;
+import com.filestore.service.DownloadStreamer;
 import com.filestore.service.FileService;
+import com.filestore.service.PasswordVerificationService;
+import com.filestore.service.TransferMetrics;
+import com.filestore.util.ClientIpResolver;
 import jakarta.servlet.http.HttpServletRequest;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.core.io.InputStreamResource;
+import org.springframework.http.CacheControl;
+import org.springframework.http.ContentDisposition;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
+import org.springframework.http.ResponseCookie;
 import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Controller;
+import org.springframework.util.MimeTypeUtils;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
 
 @Controller
 @RequestMapping
@@ -21,7 +39,21 @@ import org.springframework.web.multipart.MultipartFile;
 @Slf4j
 public class FileController {
 
+    // Tomcat serves these attributes with FileChannel.transferTo straight to the socket once the handler returns
+    private static final String SENDFILE_SUPPORT_ATTR = "org.apache.tomcat.sendfile.support";
+    private static final String SENDFILE_FILENAME_ATTR = "org.apache.tomcat.sendfile.filename";
+    private static final String SENDFILE_START_ATTR = "org.apache.tomcat.sendfile.start";
+    private static final String SENDFILE_END_ATTR = "org.apache.tomcat.sendfile.end";
+
+    private static final String DOWNLOAD_TOKEN_HEADER = "X-Download-Token";
+    private static final String DOWNLOAD_TOKEN_COOKIE = "download_token";
+
     private final FileService fileService;
+    private final CollectionService collectionService;
+    private final DownloadStreamer downloadStreamer;
+    private final PasswordVerificationService passwordVerificationService;
+    private final TransferMetrics transferMetrics;
+    private final ClientIpResolver clientIpResolver;
 
     @PostMapping("/upload")
     public ResponseEntity<UploadResponse> uploadFile(
@@ -31,31 +63,155 @@ public class FileController {
             @RequestParam(value = "maxDownloads", required = false) Integer maxDownloads,
             HttpServletRequest request
     ) {
-        String uploaderIp = getClientIp(request);
+        String uploaderIp = clientIpResolver.getClientIp(request);
 
         UploadResponse response = fileService.uploadFile(file, expiryHours, password, maxDownloads, uploaderIp);
 
         return ResponseEntity.status(HttpStatus.CREATED).body(response);
     }
 
+    @PostMapping("/upload/stream")
+    public ResponseEntity<UploadResponse> uploadFileStream(
+            @RequestParam("fileName") String fileName,
+            @RequestParam(value = "expiryHours", required = false) Integer expiryHours,
+            @RequestParam(value = "password", required = false) String password,
+            @RequestParam(value = "maxDownloads", required = false) Integer maxDownloads,
+            @RequestHeader(value = HttpHeaders.CONTENT_TYPE, required = false) String contentType,
+            HttpServletRequest request
+    ) throws IOException {
+        String uploaderIp = clientIpResolver.getClientIp(request);
+
+        UploadResponse response = fileService.uploadStream(request.getInputStream(), fileName,
+                request.getContentLengthLong(), contentType, expiryHours, password, maxDownloads, uploaderIp);
+
+        return ResponseEntity.status(HttpStatus.CREATED).body(response);
+    }
+
+    @PostMapping("/upload/batch")
+    public ResponseEntity<BatchUploadResponse> uploadBatch(
+            @RequestParam("files") List<MultipartFile> files,
+            @RequestParam(value = "expiryHours", required = false) Integer expiryHours,
+            @RequestParam(value = "password", required = false) String password,
+            @RequestParam(value = "maxDownloads", required = false) Integer maxDownloads,
+            HttpServletRequest request
+    ) {
+        String uploaderIp = clientIpResolver.getClientIp(request);
+
+        BatchUploadResponse response = collectionService.uploadBatch(files, expiryHours, password, maxDownloads,
+                uploaderIp);
+
+        return ResponseEntity.status(HttpStatus.CREATED).body(response);
+    }
+
     @GetMapping("/f/{shareToken}/info")
     public ResponseEntity<FileInfoResponse> getFileInfo(@PathVariable String shareToken) {
 
-        FileInfoResponse response = fileService.getFileInfo(shareToken);
-        return ResponseEntity.status(HttpStatus.OK).body(response);
+        FileService.FileInfoResult result = fileService.getFileInfo(shareToken);
+
+        // MVC answers a matching If-None-Match with 304 and no body, so revalidating costs no serialization
+        return ResponseEntity.status(HttpStatus.OK)
+                .eTag(result.eTag())
+                .cacheControl(CacheControl.maxAge(result.maxAge()).cachePublic())
+                .body(result.info());
     }
 
     @GetMapping("/f/{shareToken}")
-    public ResponseEntity<InputStreamResource> downloadFile(@PathVariable String shareToken, @RequestParam(value = "password", required = false) String password) {
+    public ResponseEntity<StreamingResponseBody> downloadFile(
+            @PathVariable String shareToken,
+            @RequestParam(value = "password", required = false) String password,
+            @RequestHeader(value = DOWNLOAD_TOKEN_HEADER, required = false) String downloadTokenHeader,
+            @CookieValue(value = DOWNLOAD_TOKEN_COOKIE, required = false) String downloadTokenCookie,
+            @RequestHeader(value = HttpHeaders.RANGE, required = false) String range,
+            @RequestHeader(value = HttpHeaders.IF_RANGE, required = false) String ifRange,
+            @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding,
+            HttpServletRequest request
+    ) throws IOException {
+        long requestStartNanos = System.nanoTime();
 
-        FileService.FileDownloadResult result = fileService.downloadFile(shareToken, password);
+        String downloadToken = downloadTokenHeader != null ? downloadTokenHeader : downloadTokenCookie;
+        FileService.FileDownloadResult result = fileService.downloadFile(shareToken, password, downloadToken,
+                clientIpResolver.getClientIp(request), range, ifRange, acceptEncoding);
 
-        HttpHeaders headers = new HttpHeaders();
-        headers.setContentType(MediaType.parseMediaType(result.mimeType));
-        headers.setContentLength(result.fileSize);
+        HttpHeaders headers = downloadTokenHeaders(result.downloadToken, request.getContextPath() + "/f/" + shareToken);
+
+        if (result.redirectUrl != null) {
+            // The presigned URL is short-lived and per request, so neither browsers nor proxies may reuse it
+            headers.setLocation(URI.create(result.redirectUrl));
+            headers.setCacheControl(CacheControl.noStore());
+            return ResponseEntity.status(HttpStatus.FOUND).headers(headers).build();
+        }
+
+        headers.set(HttpHeaders.ACCEPT_RANGES, result.compressed ? "none" : "bytes");
+        if (result.compressed) {
+            headers.setVary(List.of(HttpHeaders.ACCEPT_ENCODING));
+        }
+        headers.setETag(result.eTag);
+        headers.setLastModified(result.lastModified);
         headers.setContentDispositionFormData("attachment", result.fileName);
 
-        return ResponseEntity.status(HttpStatus.OK).headers(headers).body(new InputStreamResource(result.inputStream));
+        if (!result.isPartial()) {
+            headers.setContentType(MediaType.parseMediaType(result.mimeType));
+            headers.setContentLength(result.contentLength);
+            if (result.contentEncoding != null) {
+                headers.set(HttpHeaders.CONTENT_ENCODING, result.contentEncoding);
+            }
+
+            if (trySendfile(request, result, 0, result.contentLength)) {
+                return ResponseEntity.status(HttpStatus.OK).headers(headers).build();
+            }
+
+            return ResponseEntity.status(HttpStatus.OK).headers(headers)
+                    .body(out -> stream(requestStartNanos, result.inputStream, out));
+        }
+
+        if (result.ranges.size() == 1) {
+            ByteRange byteRange = result.ranges.get(0);
+            headers.setContentType(MediaType.parseMediaType(result.mimeType));
+            headers.setContentLength(byteRange.length());
+            headers.set(HttpHeaders.CONTENT_RANGE, byteRange.toContentRange(result.fileSize));
+
+            if (trySendfile(request, result, byteRange.start(), byteRange.end() + 1)) {
+                return ResponseEntity.status(HttpStatus.PARTIAL_CONTENT).headers(headers).build();
+            }
+
+            return ResponseEntity.status(HttpStatus.PARTIAL_CONTENT).headers(headers)
+                    .body(out -> stream(requestStartNanos, result.inputStream, out));
+        }
+
+        String boundary = MimeTypeUtils.generateMultipartBoundaryString();
+        headers.setContentType(MediaType.parseMediaType("multipart/byteranges; boundary=" + boundary));
+
+        return ResponseEntity.status(HttpStatus.PARTIAL_CONTENT).headers(headers)
+                .body(out -> writeByteRanges(result, requestStartNanos, boundary, out));
+    }
+
+    @GetMapping("/c/{shareToken}")
+    public ResponseEntity<StreamingResponseBody> downloadCollection(
+            @PathVariable String shareToken,
+            @RequestParam(value = "password", required = false) String password,
+            @RequestHeader(value = DOWNLOAD_TOKEN_HEADER, required = false) String downloadTokenHeader,
+            @CookieValue(value = DOWNLOAD_TOKEN_COOKIE, required = false) String downloadTokenCookie,
+            HttpServletRequest request
+    ) {
+        long requestStartNanos = System.nanoTime();
+
+        String downloadToken = downloadTokenHeader != null ? downloadTokenHeader : downloadTokenCookie;
+        CollectionService.CollectionDownload download = collectionService.downloadCollection(shareToken, password,
+                downloadToken, clientIpResolver.getClientIp(request));
+
+        // The archive is built while it is sent, so its length is unknown and the response is chunked
+        HttpHeaders headers = downloadTokenHeaders(download.downloadToken(),
+                request.getContextPath() + "/c/" + shareToken);
+        headers.setContentType(MediaType.parseMediaType("application/zip"));
+        headers.setContentDisposition(ContentDisposition.attachment().filename(download.archiveName()).build());
+        headers.setCacheControl(CacheControl.noStore());
+
+        return ResponseEntity.status(HttpStatus.OK).headers(headers).body(out -> {
+            try (DownloadStreamer.Transfer transfer = downloadStreamer.start(requestStartNanos)) {
+                collectionService.writeArchive(download, transfer, out);
+                transfer.complete();
+            }
+        });
     }
 
     @DeleteMapping("/delete/{deleteToken}")
@@ -64,16 +220,55 @@ public class FileController {
         return ResponseEntity.noContent().build();
     }
 
-    private String getClientIp(HttpServletRequest request) {
-        String ip = request.getHeader("x-forwarded-for");
-        if (ip == null || ip.length() == 0 || "unknown".equalsIgnoreCase(ip)) {
-            ip = request.getHeader("X-Real-IP");
+    private HttpHeaders downloadTokenHeaders(String downloadToken, String cookiePath) {
+        HttpHeaders headers = new HttpHeaders();
+        if (downloadToken != null) {
+            // Browsers and media players send the cookie back on their follow-up range requests by themselves
+            headers.set(DOWNLOAD_TOKEN_HEADER, downloadToken);
+            headers.add(HttpHeaders.SET_COOKIE, ResponseCookie.from(DOWNLOAD_TOKEN_COOKIE, downloadToken)
+                    .path(cookiePath)
+                    .maxAge(passwordVerificationService.getSessionTtl())
+                    .httpOnly(true)
+                    .sameSite("Lax")
+                    .build()
+                    .toString());
         }
+        return headers;
+    }
 
-        if (ip == null || ip.length() == 0 || "unknown".equalsIgnoreCase(ip)) {
-            ip = request.getRemoteAddr();
+    private void writeByteRanges(FileService.FileDownloadResult result, long requestStartNanos,
+                                 String boundary, OutputStream out) throws IOException {
+        try (DownloadStreamer.Transfer transfer = downloadStreamer.start(requestStartNanos)) {
+            for (ByteRange byteRange : result.ranges) {
+                String partHeaders = "\r\n--" + boundary + "\r\n"
+                        + HttpHeaders.CONTENT_TYPE + ": " + result.mimeType + "\r\n"
+                        + HttpHeaders.CONTENT_RANGE + ": " + byteRange.toContentRange(result.fileSize) + "\r\n\r\n";
+                out.write(partHeaders.getBytes(StandardCharsets.US_ASCII));
+                transfer.copy(fileService.openRange(result, byteRange), out);
+            }
+            out.write(("\r\n--" + boundary + "--\r\n").getBytes(StandardCharsets.US_ASCII));
+            transfer.complete();
+        }
+    }
+
+    private boolean trySendfile(HttpServletRequest request, FileService.FileDownloadResult result,
+                                long start, long end) throws IOException {
+        if (result.localPath == null || !Boolean.TRUE.equals(request.getAttribute(SENDFILE_SUPPORT_ATTR))) {
+            return false;
         }
 
-        return ip;
+        result.inputStream.close();
+        request.setAttribute(SENDFILE_FILENAME_ATTR, result.localPath.toString());
+        request.setAttribute(SENDFILE_START_ATTR, start);
+        request.setAttribute(SENDFILE_END_ATTR, end);
+        transferMetrics.sentFile(end - start);
+        return true;
+    }
+
+    private void stream(long requestStartNanos, InputStream in, OutputStream out) throws IOException {
+        try (DownloadStreamer.Transfer transfer = downloadStreamer.start(requestStartNanos)) {
+            transfer.copy(in, out);
+            transfer.complete();
+        }
     }
 }
@@ -0,0 +1,40 @@
+package com.filestore.controller;
+
+import com.filestore.model.dto.StatsResponse;
+import com.filestore.service.StorageStatsService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.CacheControl;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.time.Duration;
+
+@RestController
+@RequestMapping("/stats")
+@RequiredArgsConstructor
+public class StatsController {
+
+    private static final int MAX_TOP_FILES = 100;
+
+    private final StorageStatsService storageStatsService;
+
+    @Value("${filestore.stats.retention-hours}")
+    private Integer retentionHours;
+
+    // Dashboards poll this; a short max-age lets them share one answer without hiding new uploads for long
+    @GetMapping
+    public ResponseEntity<StatsResponse> getStats(
+            @RequestParam(value = "hours", defaultValue = "24") Integer hours,
+            @RequestParam(value = "top", defaultValue = "10") Integer top
+    ) {
+        StatsResponse response = storageStatsService.getStats(
+                Math.clamp(hours, 1, retentionHours), Math.clamp(top, 0, MAX_TOP_FILES));
+        return ResponseEntity.ok()
+                .cacheControl(CacheControl.maxAge(Duration.ofSeconds(10)))
+                .body(response);
+    }
+}
@@ -0,0 +1,88 @@
+package com.filestore.controller;
+
+import com.filestore.model.dto.UploadResponse;
+import com.filestore.model.dto.UploadSessionResponse;
+import com.filestore.service.UploadSessionService;
+import com.filestore.util.ClientIpResolver;
+import jakarta.servlet.http.HttpServletRequest;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Controller;
+import org.springframework.web.bind.annotation.*;
+
+import java.io.IOException;
+import java.util.UUID;
+
+@Controller
+@RequestMapping("/uploads")
+@RequiredArgsConstructor
+@Slf4j
+public class UploadSessionController {
+
+    private final UploadSessionService uploadSessionService;
+    private final ClientIpResolver clientIpResolver;
+
+    @PostMapping
+    public ResponseEntity<UploadSessionResponse> initUpload(
+            @RequestParam("fileName") String fileName,
+            @RequestParam("fileSize") Long fileSize,
+            @RequestParam(value = "contentType", required = false) String contentType,
+            @RequestParam(value = "expiryHours", required = false) Integer expiryHours,
+            @RequestParam(value = "password", required = false) String password,
+            @RequestParam(value = "maxDownloads", required = false) Integer maxDownloads,
+            HttpServletRequest request
+    ) {
+        String uploaderIp = clientIpResolver.getClientIp(request);
+
+        UploadSessionResponse response = uploadSessionService.initUpload(
+                fileName, fileSize, contentType, expiryHours, password, maxDownloads, uploaderIp);
+
+        return ResponseEntity.status(HttpStatus.CREATED).body(response);
+    }
+
+    @PostMapping("/presigned")
+    public ResponseEntity<UploadSessionResponse> initDirectUpload(
+            @RequestParam("fileName") String fileName,
+            @RequestParam("fileSize") Long fileSize,
+            @RequestParam(value = "contentType", required = false) String contentType,
+            @RequestParam(value = "expiryHours", required = false) Integer expiryHours,
+            @RequestParam(value = "password", required = false) String password,
+            @RequestParam(value = "maxDownloads", required = false) Integer maxDownloads,
+            HttpServletRequest request
+    ) {
+        String uploaderIp = clientIpResolver.getClientIp(request);
+
+        UploadSessionResponse response = uploadSessionService.initDirectUpload(
+                fileName, fileSize, contentType, expiryHours, password, maxDownloads, uploaderIp);
+
+        return ResponseEntity.status(HttpStatus.CREATED).body(response);
+    }
+
+    @GetMapping("/{uploadId}")
+    public ResponseEntity<UploadSessionResponse> getUpload(@PathVariable UUID uploadId) {
+        return ResponseEntity.status(HttpStatus.OK).body(uploadSessionService.getUpload(uploadId));
+    }
+
+    @PutMapping("/{uploadId}/chunks/{chunkIndex}")
+    public ResponseEntity<Void> uploadChunk(
+            @PathVariable UUID uploadId,
+            @PathVariable int chunkIndex,
+            HttpServletRequest request
+    ) throws IOException {
+        uploadSessionService.uploadChunk(uploadId, chunkIndex, request.getInputStream(), request.getContentLengthLong());
+        return ResponseEntity.noContent().build();
+    }
+
+    @PostMapping("/{uploadId}/complete")
+    public ResponseEntity<UploadResponse> completeUpload(@PathVariable UUID uploadId) {
+        return ResponseEntity.status(HttpStatus.CREATED).body(uploadSessionService.completeUpload(uploadId));
+    }
+
+    @DeleteMapping("/{uploadId}")
+    public ResponseEntity<Void> abortUpload(@PathVariable UUID uploadId) {
+        uploadSessionService.abortUpload(uploadId);
+        return ResponseEntity.noContent().build();
+    }
+}
@@ -1,5 +1,6 @@
 package com.filestore.exception;
 
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.ExceptionHandler;
@@ -33,6 +34,20 @@ public class GlobalExceptionHandler {
         return buildErrorResponse(ex.getMessage(), HttpStatus.PAYLOAD_TOO_LARGE);
     }
 
+    @ExceptionHandler(RangeNotSatisfiableException.class)
+    public ResponseEntity<Map<String, Object>> handleRangeNotSatisfiable(RangeNotSatisfiableException ex) {
+        HttpHeaders headers = new HttpHeaders();
+        headers.set(HttpHeaders.CONTENT_RANGE, "bytes */" + ex.getFileSize());
+        return buildErrorResponse(ex.getMessage(), HttpStatus.REQUESTED_RANGE_NOT_SATISFIABLE, headers);
+    }
+
+    @ExceptionHandler(TooManyRequestsException.class)
+    public ResponseEntity<Map<String, Object>> handleTooManyRequests(TooManyRequestsException ex) {
+        HttpHeaders headers = new HttpHeaders();
+        headers.set(HttpHeaders.RETRY_AFTER, String.valueOf(ex.getRetryAfterSeconds()));
+        return buildErrorResponse(ex.getMessage(), HttpStatus.TOO_MANY_REQUESTS, headers);
+    }
+
     @ExceptionHandler(MaxUploadSizeExceededException.class)
     public ResponseEntity<Map<String, Object>> handleMaxUploadSize(MaxUploadSizeExceededException ex) {
         return buildErrorResponse("File size exceeds maximum limit", HttpStatus.PAYLOAD_TOO_LARGE);
@@ -45,11 +60,15 @@ public class GlobalExceptionHandler {
     }
 
     private ResponseEntity<Map<String, Object>> buildErrorResponse(String message, HttpStatus status) {
+        return buildErrorResponse(message, status, new HttpHeaders());
+    }
+
+    private ResponseEntity<Map<String, Object>> buildErrorResponse(String message, HttpStatus status, HttpHeaders headers) {
         Map<String, Object> errorResponse = new HashMap<>();
         errorResponse.put("timestamp", LocalDateTime.now());
         errorResponse.put("status", status.value());
         errorResponse.put("error", status.getReasonPhrase());
         errorResponse.put("message", message);
-        return new ResponseEntity<>(errorResponse, status);
+        return new ResponseEntity<>(errorResponse, headers, status);
     }
 }
@@ -0,0 +1,15 @@
+package com.filestore.exception;
+
+public class RangeNotSatisfiableException extends RuntimeException {
+
+    private final long fileSize;
+
+    public RangeNotSatisfiableException(String message, long fileSize) {
+        super(message);
+        this.fileSize = fileSize;
+    }
+
+    public long getFileSize() {
+        return fileSize;
+    }
+}
@@ -0,0 +1,124 @@
+package com.filestore.filter;
+
+import com.filestore.util.ClientIpResolver;
+import jakarta.servlet.AsyncEvent;
+import jakarta.servlet.AsyncListener;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.RequiredArgsConstructor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+// One line per upload, download and delete, written when the transfer has finished; for streamed downloads that
+// is when the async response completes, not when the controller returns
+@Component
+@RequiredArgsConstructor
+public class AccessLogFilter extends OncePerRequestFilter {
+
+    // A logger of its own, so the access log can be routed or silenced separately from the service logs
+    private static final Logger ACCESS_LOG = LoggerFactory.getLogger("filestore.access");
+
+    private final ClientIpResolver clientIpResolver;
+
+    @Value("${filestore.access-log.enabled}")
+    private boolean enabled;
+
+    @Value("${filestore.access-log.sample-rate}")
+    private Double sampleRate;
+
+    @Value("${filestore.access-log.slow-threshold-ms}")
+    private Long slowThresholdMs;
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return !enabled || !ACCESS_LOG.isInfoEnabled() || !isTransfer(request);
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        long startNanos = System.nanoTime();
+        ByteCountingRequest countingRequest = new ByteCountingRequest(request);
+        ByteCountingResponse countingResponse = new ByteCountingResponse(request, response);
+        try {
+            filterChain.doFilter(countingRequest, countingResponse);
+        } catch (IOException | ServletException | RuntimeException e) {
+            // The container turns this into a 500 after this filter
+            log(countingRequest, countingResponse, 500, startNanos, e.getClass().getSimpleName());
+            throw e;
+        }
+
+        if (request.isAsyncStarted()) {
+            // A transfer that fails or times out after the headers were sent still reports 200, so those are
+            // logged as errors from the listener; the container calls onComplete afterwards, which then skips
+            AtomicBoolean logged = new AtomicBoolean();
+            request.getAsyncContext().addListener(new AsyncListener() {
+                @Override
+                public void onComplete(AsyncEvent event) {
+                    if (logged.compareAndSet(false, true)) {
+                        log(countingRequest, countingResponse, countingResponse.getStatus(), startNanos, null);
+                    }
+                }
+
+                @Override
+                public void onTimeout(AsyncEvent event) {
+                    if (logged.compareAndSet(false, true)) {
+                        log(countingRequest, countingResponse, countingResponse.getStatus(), startNanos, "timeout");
+                    }
+                }
+
+                @Override
+                public void onError(AsyncEvent event) {
+                    if (logged.compareAndSet(false, true)) {
+                        Throwable cause = event.getThrowable();
+                        log(countingRequest, countingResponse, countingResponse.getStatus(), startNanos,
+                                cause != null ? cause.getClass().getSimpleName() : "error");
+                    }
+                }
+
+                @Override
+                public void onStartAsync(AsyncEvent event) {
+                }
+            });
+        } else {
+            log(countingRequest, countingResponse, countingResponse.getStatus(), startNanos, null);
+        }
+    }
+
+    // Failed and slow transfers are always logged; the rest are sampled, so the line costs nothing on most requests.
+    // Byte counts are what was actually read and written, so they also cover chunked bodies and aborted transfers.
+    private void log(ByteCountingRequest request, ByteCountingResponse response, int status, long startNanos,
+                     String error) {
+        long durationMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos);
+        if (error == null && status < 500 && durationMs < slowThresholdMs
+                && ThreadLocalRandom.current().nextDouble() >= sampleRate) {
+            return;
+        }
+
+        ACCESS_LOG.info("method={} path={} status={} error={} durationMs={} requestBytes={} responseBytes={} client={}",
+                request.getMethod(), path(request), status, error != null ? error : "none", durationMs,
+                request.getBytesRead(), response.getBytesWritten(), clientIpResolver.getClientIp(request));
+    }
+
+    private boolean isTransfer(HttpServletRequest request) {
+        String method = request.getMethod();
+        String path = path(request);
+        return (("POST".equals(method) || "PUT".equals(method)) && path.startsWith("/upload"))
+                || ("GET".equals(method) && (path.startsWith("/f/") || path.startsWith("/c/")))
+                || ("DELETE".equals(method) && path.startsWith("/delete/"));
+    }
+
+    private String path(HttpServletRequest request) {
+        return request.getRequestURI().substring(request.getContextPath().length());
+    }
+}
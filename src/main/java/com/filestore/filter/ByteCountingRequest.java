@@ -0,0 +1,108 @@
+package com.filestore.filter;
+
+import jakarta.servlet.ReadListener;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.ServletInputStream;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletRequestWrapper;
+import jakarta.servlet.http.Part;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Counts the request body bytes the application actually read, whether or not a Content-Length was sent.
+// Multipart bodies are parsed by the container without going through getInputStream, so for those the sizes
+// of the parts the application asked for are counted instead.
+class ByteCountingRequest extends HttpServletRequestWrapper {
+
+    private final AtomicLong bytesRead = new AtomicLong();
+    private final List<Part> parts = new ArrayList<>();
+    private ServletInputStream inputStream;
+
+    ByteCountingRequest(HttpServletRequest request) {
+        super(request);
+    }
+
+    long getBytesRead() {
+        long partBytes;
+        synchronized (parts) {
+            partBytes = parts.stream().mapToLong(Part::getSize).sum();
+        }
+        return bytesRead.get() + partBytes;
+    }
+
+    @Override
+    public ServletInputStream getInputStream() throws IOException {
+        if (inputStream == null) {
+            inputStream = new CountingInputStream(super.getInputStream());
+        }
+        return inputStream;
+    }
+
+    @Override
+    public BufferedReader getReader() throws IOException {
+        Charset charset = getCharacterEncoding() != null
+                ? Charset.forName(getCharacterEncoding())
+                : StandardCharsets.ISO_8859_1;
+        return new BufferedReader(new InputStreamReader(getInputStream(), charset));
+    }
+
+    @Override
+    public Collection<Part> getParts() throws IOException, ServletException {
+        Collection<Part> requested = super.getParts();
+        synchronized (parts) {
+            parts.clear();
+            parts.addAll(requested);
+        }
+        return requested;
+    }
+
+    private class CountingInputStream extends ServletInputStream {
+
+        private final ServletInputStream delegate;
+
+        CountingInputStream(ServletInputStream delegate) {
+            this.delegate = delegate;
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = delegate.read();
+            if (b >= 0) {
+                bytesRead.incrementAndGet();
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            int n = delegate.read(b, off, len);
+            if (n > 0) {
+                bytesRead.addAndGet(n);
+            }
+            return n;
+        }
+
+        @Override
+        public boolean isFinished() {
+            return delegate.isFinished();
+        }
+
+        @Override
+        public boolean isReady() {
+            return delegate.isReady();
+        }
+
+        @Override
+        public void setReadListener(ReadListener readListener) {
+            delegate.setReadListener(readListener);
+        }
+    }
+}
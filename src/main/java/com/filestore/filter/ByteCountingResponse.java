@@ -0,0 +1,92 @@
+package com.filestore.filter;
+
+import jakarta.servlet.ServletOutputStream;
+import jakarta.servlet.WriteListener;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import jakarta.servlet.http.HttpServletResponseWrapper;
+
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Counts the response body bytes actually written, so chunked and streamed responses are measured as well as
+// those with a Content-Length. Streamed bodies are written from another thread after the filter chain returns,
+// so the count is only final once the async response completes. A body handed to Tomcat's sendfile is written
+// by the connector without passing through this wrapper, so its range is read from the request and added.
+class ByteCountingResponse extends HttpServletResponseWrapper {
+
+    private static final String SENDFILE_FILENAME_ATTR = "org.apache.tomcat.sendfile.filename";
+    private static final String SENDFILE_START_ATTR = "org.apache.tomcat.sendfile.start";
+    private static final String SENDFILE_END_ATTR = "org.apache.tomcat.sendfile.end";
+
+    private final HttpServletRequest request;
+    private final AtomicLong bytesWritten = new AtomicLong();
+    private ServletOutputStream outputStream;
+
+    ByteCountingResponse(HttpServletRequest request, HttpServletResponse response) {
+        super(response);
+        this.request = request;
+    }
+
+    long getBytesWritten() {
+        return bytesWritten.get() + sentFileBytes();
+    }
+
+    private long sentFileBytes() {
+        if (request.getAttribute(SENDFILE_FILENAME_ATTR) == null
+                || !(request.getAttribute(SENDFILE_START_ATTR) instanceof Long start)
+                || !(request.getAttribute(SENDFILE_END_ATTR) instanceof Long end)) {
+            return 0;
+        }
+        return Math.max(0, end - start);
+    }
+
+    @Override
+    public ServletOutputStream getOutputStream() throws IOException {
+        if (outputStream == null) {
+            outputStream = new CountingOutputStream(super.getOutputStream());
+        }
+        return outputStream;
+    }
+
+    private class CountingOutputStream extends ServletOutputStream {
+
+        private final ServletOutputStream delegate;
+
+        CountingOutputStream(ServletOutputStream delegate) {
+            this.delegate = delegate;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            delegate.write(b);
+            bytesWritten.incrementAndGet();
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            delegate.write(b, off, len);
+            bytesWritten.addAndGet(len);
+        }
+
+        @Override
+        public void flush() throws IOException {
+            delegate.flush();
+        }
+
+        @Override
+        public void close() throws IOException {
+            delegate.close();
+        }
+
+        @Override
+        public boolean isReady() {
+            return delegate.isReady();
+        }
+
+        @Override
+        public void setWriteListener(WriteListener writeListener) {
+            delegate.setWriteListener(writeListener);
+        }
+    }
+}
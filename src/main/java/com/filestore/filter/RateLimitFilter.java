@@ -0,0 +1,193 @@
+package com.filestore.filter;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.filestore.service.RateLimiter;
+import com.filestore.service.RateLimiter.Budget;
+import com.filestore.util.ClientIpResolver;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.servlet.AsyncEvent;
+import jakarta.servlet.AsyncListener;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.Map;
+
+// Runs before the DispatcherServlet so rejected uploads are never parsed or spooled to disk
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class RateLimitFilter extends OncePerRequestFilter {
+
+    private final RateLimiter rateLimiter;
+    private final ClientIpResolver clientIpResolver;
+    private final ObjectMapper objectMapper;
+    private final MeterRegistry meterRegistry;
+
+    @Value("${filestore.rate-limit.enabled}")
+    private boolean enabled;
+
+    @Value("${filestore.rate-limit.upload.requests-capacity}")
+    private Long uploadRequestsCapacity;
+
+    @Value("${filestore.rate-limit.upload.requests-per-second}")
+    private Double uploadRequestsPerSecond;
+
+    @Value("${filestore.rate-limit.upload.bytes-capacity}")
+    private Long uploadBytesCapacity;
+
+    @Value("${filestore.rate-limit.upload.bytes-per-second}")
+    private Double uploadBytesPerSecond;
+
+    @Value("${filestore.rate-limit.download.requests-capacity}")
+    private Long downloadRequestsCapacity;
+
+    @Value("${filestore.rate-limit.download.requests-per-second}")
+    private Double downloadRequestsPerSecond;
+
+    @Value("${filestore.rate-limit.download.bytes-capacity}")
+    private Long downloadBytesCapacity;
+
+    @Value("${filestore.rate-limit.download.bytes-per-second}")
+    private Double downloadBytesPerSecond;
+
+    private Budget uploadRequests;
+    private Budget uploadBytes;
+    private Budget downloadRequests;
+    private Budget downloadBytes;
+
+    @PostConstruct
+    public void init() {
+        uploadRequests = new Budget("upload-requests", uploadRequestsCapacity, uploadRequestsPerSecond);
+        uploadBytes = new Budget("upload-bytes", uploadBytesCapacity, uploadBytesPerSecond);
+        downloadRequests = new Budget("download-requests", downloadRequestsCapacity, downloadRequestsPerSecond);
+        downloadBytes = new Budget("download-bytes", downloadBytesCapacity, downloadBytesPerSecond);
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return !enabled || (!isUpload(request) && !isDownload(request));
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        String clientIp = clientIpResolver.getClientIp(request);
+
+        if (isUpload(request)) {
+            // The declared body size is charged up front; a bucket already in debt rejects the next upload
+            long contentLength = Math.max(0, request.getContentLengthLong());
+            if (reject(response, uploadRequests, clientIp, 1, 1)
+                    || reject(response, uploadBytes, clientIp, 1, contentLength)) {
+                return;
+            }
+
+            // Whatever was read beyond the declared size, such as a chunked body with no Content-Length, is
+            // charged once the upload has been read
+            ByteCountingRequest counting = new ByteCountingRequest(request);
+            try {
+                filterChain.doFilter(counting, response);
+            } finally {
+                long extra = counting.getBytesRead() - contentLength;
+                if (extra > 0) {
+                    rateLimiter.tryConsume(uploadBytes, clientIp, RateLimiter.ALWAYS, extra);
+                }
+            }
+            return;
+        }
+
+        if (reject(response, downloadRequests, clientIp, 1, 1)
+                || reject(response, downloadBytes, clientIp, 1, 0)) {
+            return;
+        }
+
+        // Downloads are charged the bytes actually written, once the response has finished; streamed and zip
+        // downloads finish when the async response completes, not when the controller returns
+        ByteCountingResponse counting = new ByteCountingResponse(request, response);
+        boolean completed = false;
+        try {
+            filterChain.doFilter(request, counting);
+            completed = true;
+        } finally {
+            if (completed && request.isAsyncStarted()) {
+                request.getAsyncContext().addListener(new AsyncListener() {
+                    @Override
+                    public void onComplete(AsyncEvent event) {
+                        chargeDownload(clientIp, counting.getBytesWritten());
+                    }
+
+                    @Override
+                    public void onTimeout(AsyncEvent event) {
+                    }
+
+                    @Override
+                    public void onError(AsyncEvent event) {
+                    }
+
+                    @Override
+                    public void onStartAsync(AsyncEvent event) {
+                    }
+                });
+            } else {
+                chargeDownload(clientIp, counting.getBytesWritten());
+            }
+        }
+    }
+
+    // Charged after the fact, so the bucket may go into debt and the client's next download waits it out
+    private void chargeDownload(String clientIp, long bytes) {
+        if (bytes > 0) {
+            rateLimiter.tryConsume(downloadBytes, clientIp, RateLimiter.ALWAYS, bytes);
+        }
+    }
+
+    private boolean reject(HttpServletResponse response, Budget budget, String clientIp, long required, long cost)
+            throws IOException {
+        long waitMillis = rateLimiter.tryConsume(budget, clientIp, required, cost);
+        if (waitMillis <= 0) {
+            return false;
+        }
+
+        meterRegistry.counter("filestore.ratelimit.rejected", "budget", budget.name()).increment();
+        log.debug("Rate limited {} on {}", clientIp, budget.name());
+
+        Map<String, Object> errorResponse = new HashMap<>();
+        errorResponse.put("timestamp", LocalDateTime.now());
+        errorResponse.put("status", HttpStatus.TOO_MANY_REQUESTS.value());
+        errorResponse.put("error", HttpStatus.TOO_MANY_REQUESTS.getReasonPhrase());
+        errorResponse.put("message", "Rate limit exceeded, try again later");
+
+        response.setStatus(HttpStatus.TOO_MANY_REQUESTS.value());
+        response.setHeader(HttpHeaders.RETRY_AFTER, String.valueOf(Math.max(1, (waitMillis + 999) / 1000)));
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        objectMapper.writeValue(response.getOutputStream(), errorResponse);
+        return true;
+    }
+
+    private boolean isUpload(HttpServletRequest request) {
+        String method = request.getMethod();
+        return ("POST".equals(method) || "PUT".equals(method)) && path(request).startsWith("/upload");
+    }
+
+    private boolean isDownload(HttpServletRequest request) {
+        String path = path(request);
+        return "GET".equals(request.getMethod()) && (path.startsWith("/f/") || path.startsWith("/c/"));
+    }
+
+    private String path(HttpServletRequest request) {
+        return request.getRequestURI().substring(request.getContextPath().length());
+    }
+}
@@ -0,0 +1,19 @@
+package com.filestore.job;
+
+import com.filestore.service.ExpiredFileReaper;
+import lombok.RequiredArgsConstructor;
+import org.quartz.DisallowConcurrentExecution;
+import org.quartz.JobExecutionContext;
+import org.springframework.scheduling.quartz.QuartzJobBean;
+
+@DisallowConcurrentExecution
+@RequiredArgsConstructor
+public class ExpiredFileReaperJob extends QuartzJobBean {
+
+    private final ExpiredFileReaper expiredFileReaper;
+
+    @Override
+    protected void executeInternal(JobExecutionContext context) {
+        expiredFileReaper.reapExpiredFiles();
+    }
+}
@@ -0,0 +1,19 @@
+package com.filestore.job;
+
+import com.filestore.service.PendingUploadReconciler;
+import lombok.RequiredArgsConstructor;
+import org.quartz.DisallowConcurrentExecution;
+import org.quartz.JobExecutionContext;
+import org.springframework.scheduling.quartz.QuartzJobBean;
+
+@DisallowConcurrentExecution
+@RequiredArgsConstructor
+public class PendingUploadReconcilerJob extends QuartzJobBean {
+
+    private final PendingUploadReconciler pendingUploadReconciler;
+
+    @Override
+    protected void executeInternal(JobExecutionContext context) {
+        pendingUploadReconciler.reconcilePendingUploads();
+    }
+}
@@ -0,0 +1,19 @@
+package com.filestore.job;
+
+import com.filestore.service.StorageStatsService;
+import lombok.RequiredArgsConstructor;
+import org.quartz.DisallowConcurrentExecution;
+import org.quartz.JobExecutionContext;
+import org.springframework.scheduling.quartz.QuartzJobBean;
+
+@DisallowConcurrentExecution
+@RequiredArgsConstructor
+public class StorageStatsReconcilerJob extends QuartzJobBean {
+
+    private final StorageStatsService storageStatsService;
+
+    @Override
+    protected void executeInternal(JobExecutionContext context) {
+        storageStatsService.reconcile();
+    }
+}
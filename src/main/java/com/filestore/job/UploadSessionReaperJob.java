@@ -0,0 +1,19 @@
+package com.filestore.job;
+
+import com.filestore.service.UploadSessionReaper;
+import lombok.RequiredArgsConstructor;
+import org.quartz.DisallowConcurrentExecution;
+import org.quartz.JobExecutionContext;
+import org.springframework.scheduling.quartz.QuartzJobBean;
+
+@DisallowConcurrentExecution
+@RequiredArgsConstructor
+public class UploadSessionReaperJob extends QuartzJobBean {
+
+    private final UploadSessionReaper uploadSessionReaper;
+
+    @Override
+    protected void executeInternal(JobExecutionContext context) {
+        uploadSessionReaper.reapSessions();
+    }
+}
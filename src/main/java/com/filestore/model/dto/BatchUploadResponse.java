@@ -0,0 +1,20 @@
+package com.filestore.model.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class BatchUploadResponse {
+
+    private String collectionUrl;
+    private LocalDateTime expiresAt;
+    private List<UploadResponse> files;
+}
@@ -0,0 +1,12 @@
+package com.filestore.model.dto;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+// What the shared metadata cache holds for a file: the fields downloads and info lookups read, and nothing that
+// would matter if Redis were exposed, such as password hashes, delete tokens or uploader addresses
+public record CachedFile(UUID id, String originalFileName, Long fileSize, String mimeType, String storageKey,
+                         String compression, Long storedSize, String shareToken, LocalDateTime uploadDate,
+                         LocalDateTime expiryDate, Integer downloadCount, Integer maxDownloads, Boolean isDeleted,
+                         LocalDateTime updatedAt) {
+}
@@ -0,0 +1,6 @@
+package com.filestore.model.dto;
+
+import java.util.UUID;
+
+public record ExpiredFile(UUID id, String storageKey, String contentHash, String shareToken, Long fileSize) {
+}
@@ -0,0 +1,10 @@
+package com.filestore.model.dto;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+// The columns an info lookup needs, selected without loading the entity, so no password hash or storage key is read
+public record FileInfo(UUID id, String fileName, Long fileSize, String mimeType, LocalDateTime uploadDate,
+                       LocalDateTime expiryDate, Integer downloadCount, Integer maxDownloads,
+                       Boolean passwordProtected, LocalDateTime updatedAt) {
+}
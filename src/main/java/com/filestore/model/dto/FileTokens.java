@@ -0,0 +1,4 @@
+package com.filestore.model.dto;
+
+public record FileTokens(String shareToken, String deleteToken) {
+}
@@ -0,0 +1,43 @@
+package com.filestore.model.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class StatsResponse {
+
+    private Long activeFiles;
+    private Long bytesUsed;
+    private List<Interval> intervals;
+    private List<TopFile> topFiles;
+
+    @Data
+    @Builder
+    @AllArgsConstructor
+    @NoArgsConstructor
+    public static class Interval {
+        private LocalDateTime start;
+        private Long uploads;
+        private Long uploadBytes;
+        private Long downloads;
+    }
+
+    // The endpoint is public, so files are described without anything that identifies them or their uploader
+    @Data
+    @Builder
+    @AllArgsConstructor
+    @NoArgsConstructor
+    public static class TopFile {
+        private Long fileSize;
+        private Long downloadCount;
+        private LocalDateTime uploadDate;
+    }
+}
@@ -0,0 +1,4 @@
+package com.filestore.model.dto;
+
+public record StorageTotals(Long activeFiles, Long bytesUsed) {
+}
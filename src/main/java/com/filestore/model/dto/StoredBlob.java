@@ -0,0 +1,4 @@
+package com.filestore.model.dto;
+
+public record StoredBlob(String storageKey, String contentHash, long storedSize) {
+}
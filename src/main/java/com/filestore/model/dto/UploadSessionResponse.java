@@ -0,0 +1,26 @@
+package com.filestore.model.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class UploadSessionResponse {
+
+    private String uploadId;
+    private String fileName;
+    private Long fileSize;
+    private Long chunkSize;
+    private Integer totalChunks;
+    private List<Integer> missingChunks;
+    private String status;
+    private LocalDateTime expiresAt;
+    private String uploadUrl;
+}
@@ -0,0 +1,41 @@
+package com.filestore.model.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.hibernate.annotations.CreationTimestamp;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+// Files uploaded in one batch, shared under a single link that downloads them all as a zip
+@Entity
+@Table(name = "collections")
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class FileCollection {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.UUID)
+    private UUID id;
+
+    @Column(unique = true, nullable = false)
+    private String shareToken;
+
+    @Column
+    private String passwordHash;
+
+    @Column(nullable = false)
+    private LocalDateTime expiryDate;
+
+    @Column
+    private String uploaderIp;
+
+    @CreationTimestamp
+    @Column(nullable = false, updatable = false)
+    private LocalDateTime createdAt;
+}
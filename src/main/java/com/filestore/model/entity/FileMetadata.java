@@ -9,10 +9,14 @@ import lombok.NoArgsConstructor;
 import org.hibernate.annotations.CreationTimestamp;
 import org.hibernate.annotations.UpdateTimestamp;
 
+import java.time.Instant;
 import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.temporal.ChronoUnit;
 import java.util.UUID;
 
 @Entity
+// Indexes are defined in the migrations, most of them partial over live rows
 @Table(name  = "files")
 @Data
 @Builder
@@ -20,6 +24,11 @@ import java.util.UUID;
 @AllArgsConstructor
 public class FileMetadata {
 
+    public enum Status {
+        PENDING,
+        ACTIVE
+    }
+
     @Id
     @GeneratedValue(strategy = GenerationType.UUID)
     private UUID id;
@@ -36,6 +45,17 @@ public class FileMetadata {
     @Column(nullable = false)
     private String storageKey;
 
+    @Column(length = 64)
+    private String contentHash;
+
+    // Codec the object is stored with, null when stored as uploaded
+    @Column(length = 16)
+    private String compression;
+
+    // Size of the stored object, which differs from fileSize when compressed
+    @Column
+    private Long storedSize;
+
     @Column(unique = true, nullable = false)
     private String shareToken;
 
@@ -62,9 +82,20 @@ public class FileMetadata {
     @Builder.Default
     private Boolean isDeleted = false;
 
+    // Inserted PENDING before the object is written and switched to ACTIVE once it is stored, so an upload that
+    // dies halfway leaves a row the reconciler can find instead of an orphaned object
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, columnDefinition = "varchar(16) default 'ACTIVE'")
+    @Builder.Default
+    private Status status = Status.ACTIVE;
+
     @Column
     private String uploaderIp;
 
+    // Set for files uploaded together in one batch, which can also be downloaded as one archive
+    @Column
+    private UUID collectionId;
+
     @CreationTimestamp
     @Column(nullable = false, updatable = false)
     private LocalDateTime createdAt;
@@ -84,4 +115,21 @@ public class FileMetadata {
     public boolean isPasswordProtected() {
         return passwordHash != null && !passwordHash.isEmpty();
     }
+
+    public String getEntityTag() {
+        return "\"" + id + "\"";
+    }
+
+    // The encoded representation is different bytes, so it gets its own tag
+    public String getEntityTag(String contentEncoding) {
+        return contentEncoding == null ? getEntityTag() : "\"" + id + "-" + contentEncoding + "\"";
+    }
+
+    public boolean isCompressed() {
+        return compression != null;
+    }
+
+    public Instant getLastModified() {
+        return uploadDate.atZone(ZoneId.systemDefault()).toInstant().truncatedTo(ChronoUnit.SECONDS);
+    }
 }
@@ -0,0 +1,44 @@
+package com.filestore.model.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.io.Serializable;
+import java.time.LocalDateTime;
+
+// Transfer counts per hour, slotted like the storage totals
+@Entity
+@Table(name = "hourly_stats")
+@IdClass(HourlyStats.Key.class)
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class HourlyStats {
+
+    @Id
+    private LocalDateTime bucketStart;
+
+    @Id
+    private Integer slot;
+
+    @Column(nullable = false)
+    private Long uploads;
+
+    @Column(nullable = false)
+    private Long uploadBytes;
+
+    @Column(nullable = false)
+    private Long downloads;
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Key implements Serializable {
+        private LocalDateTime bucketStart;
+        private Integer slot;
+    }
+}
@@ -0,0 +1,27 @@
+package com.filestore.model.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// Running totals of active files, summed over a few slots so concurrent uploads and deletes rarely wait on
+// the same row lock
+@Entity
+@Table(name = "storage_stats")
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class StorageStats {
+
+    @Id
+    private Integer slot;
+
+    @Column(nullable = false)
+    private Long activeFiles;
+
+    @Column(nullable = false)
+    private Long bytesUsed;
+}
@@ -0,0 +1,124 @@
+package com.filestore.model.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.hibernate.annotations.CreationTimestamp;
+import org.hibernate.annotations.UpdateTimestamp;
+
+import java.time.LocalDateTime;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.stream.IntStream;
+
+@Entity
+@Table(name = "upload_sessions")
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class UploadSession {
+
+    public enum Status {
+        ACTIVE,
+        COMPLETING,
+        COMPLETED,
+        ABORTED
+    }
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.UUID)
+    private UUID id;
+
+    @Column(nullable = false)
+    private String originalFileName;
+
+    @Column(nullable = false)
+    private Long fileSize;
+
+    @Column(nullable = false)
+    private String mimeType;
+
+    @Column(nullable = false)
+    private String storageKey;
+
+    @Column(nullable = false)
+    private Long chunkSize;
+
+    @Column(nullable = false)
+    private Integer totalChunks;
+
+    // Uploaded by the client in one PUT to a presigned URL for storageKey instead of in chunks
+    @Column
+    @Builder.Default
+    private Boolean direct = false;
+
+    @Column
+    private String passwordHash;
+
+    @Column
+    private Integer expiryHours;
+
+    @Column
+    private Integer maxDownloads;
+
+    @Column
+    private String uploaderIp;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false)
+    @Builder.Default
+    private Status status = Status.ACTIVE;
+
+    @Column
+    private UUID fileId;
+
+    @Column(nullable = false)
+    private LocalDateTime expiresAt;
+
+    @ElementCollection(fetch = FetchType.EAGER)
+    @CollectionTable(name = "upload_session_chunks", joinColumns = @JoinColumn(name = "upload_session_id"))
+    @Column(name = "chunk_index", nullable = false)
+    @Builder.Default
+    private Set<Integer> uploadedChunks = new HashSet<>();
+
+    @CreationTimestamp
+    @Column(nullable = false, updatable = false)
+    private LocalDateTime createdAt;
+
+    @UpdateTimestamp
+    @Column(nullable = false)
+    private LocalDateTime updatedAt;
+
+    public boolean isExpired() {
+        return LocalDateTime.now().isAfter(expiresAt);
+    }
+
+    public long getChunkLength(int chunkIndex) {
+        if (chunkIndex == totalChunks - 1) {
+            return fileSize - chunkSize * (totalChunks - 1);
+        }
+        return chunkSize;
+    }
+
+    public String getChunkKey(int chunkIndex) {
+        return "uploads/parts/" + id + "/" + chunkIndex;
+    }
+
+    public List<String> getChunkKeys() {
+        return IntStream.range(0, totalChunks)
+                .mapToObj(this::getChunkKey)
+                .toList();
+    }
+
+    public List<Integer> getMissingChunks() {
+        return IntStream.range(0, totalChunks)
+                .filter(chunkIndex -> !uploadedChunks.contains(chunkIndex))
+                .boxed()
+                .toList();
+    }
+}
@@ -0,0 +1,33 @@
+package com.filestore.repository;
+
+import com.filestore.model.entity.Blob;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+
+@Repository
+public interface BlobRepository extends JpaRepository<Blob, String> {
+
+    // Returns the key of the object that now backs the content, which is the caller's own key only for new content
+    @Transactional
+    @Query(value = "INSERT INTO blobs (content_hash, storage_key, size, ref_count, created_at) " +
+            "VALUES (:contentHash, :storageKey, :size, 1, now()) " +
+            "ON CONFLICT (content_hash) DO UPDATE SET ref_count = blobs.ref_count + 1 " +
+            "RETURNING storage_key", nativeQuery = true)
+    String acquire(String contentHash, String storageKey, long size);
+
+    @Transactional
+    @Modifying
+    @Query(value = "UPDATE blobs SET ref_count = ref_count - :references WHERE content_hash = :contentHash",
+            nativeQuery = true)
+    int release(String contentHash, int references);
+
+    @Transactional
+    @Query(value = "DELETE FROM blobs WHERE content_hash = :contentHash AND ref_count <= 0 RETURNING storage_key",
+            nativeQuery = true)
+    List<String> deleteUnreferenced(String contentHash);
+}
@@ -0,0 +1,29 @@
+package com.filestore.repository;
+
+import com.filestore.model.entity.FileCollection;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.Optional;
+import java.util.UUID;
+
+@Repository
+public interface FileCollectionRepository extends JpaRepository<FileCollection, UUID> {
+
+    Optional<FileCollection> findByShareToken(String shareToken);
+
+    boolean existsByShareToken(String shareToken);
+
+    // Collections are removed once they have expired and none of their files is left; returns how many were removed
+    @Transactional
+    @Modifying
+    @Query(value = "DELETE FROM collections WHERE id IN (" +
+            "SELECT c.id FROM collections c WHERE c.expiry_date < :now AND NOT EXISTS (" +
+            "SELECT 1 FROM files f WHERE f.collection_id = c.id AND f.is_deleted = false) LIMIT :limit)",
+            nativeQuery = true)
+    int deleteExpiredEmpty(LocalDateTime now, int limit);
+}
@@ -1,11 +1,18 @@
 package com.filestore.repository;
 
+import com.filestore.model.dto.ExpiredFile;
+import com.filestore.model.dto.FileInfo;
+import com.filestore.model.dto.StorageTotals;
 import com.filestore.model.entity.FileMetadata;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
@@ -13,18 +20,76 @@ import java.util.UUID;
 @Repository
 public interface FileMetadataRepository extends JpaRepository<FileMetadata, UUID> {
 
-    Optional<FileMetadata> findByShareToken(String shareToken);
+    Optional<FileMetadata> findByShareTokenAndStatus(String shareToken, FileMetadata.Status status);
+
+    // A constructor projection: nothing is attached to a persistence context and no transaction is needed
+    @Query("SELECT new com.filestore.model.dto.FileInfo(f.id, f.originalFileName, f.fileSize, f.mimeType, " +
+            "f.uploadDate, f.expiryDate, f.downloadCount, f.maxDownloads, " +
+            "CASE WHEN f.passwordHash IS NOT NULL AND f.passwordHash <> '' THEN true ELSE false END, f.updatedAt) " +
+            "FROM FileMetadata f WHERE f.shareToken = :shareToken AND f.status = :status AND f.isDeleted = false")
+    Optional<FileInfo> findInfoByShareToken(String shareToken, FileMetadata.Status status);
 
     Optional<FileMetadata> findByDeleteToken(String deleteToken);
 
-    @Query("SELECT f FROM FileMetadata f WHERE f.expiryDate < :now AND f.isDeleted = false")
-    List<FileMetadata> findByExpiredFiles(LocalDateTime now);
+    boolean existsByShareTokenOrDeleteToken(String shareToken, String deleteToken);
+
+    boolean existsByShareTokenInOrDeleteTokenIn(Collection<String> shareTokens, Collection<String> deleteTokens);
+
+    List<FileMetadata> findByCollectionIdAndStatusAndIsDeletedFalseOrderByOriginalFileName(UUID collectionId,
+                                                                                          FileMetadata.Status status);
+
+    @Transactional
+    @Modifying
+    @Query("UPDATE FileMetadata f SET f.downloadCount = f.downloadCount + 1 " +
+            "WHERE f.id = :id AND (f.maxDownloads IS NULL OR f.downloadCount < f.maxDownloads)")
+    int incrementDownloadCount(UUID id);
+
+    // Keyset pagination: pass the last id of the previous page, so each page is an index range scan rather than an OFFSET
+    @Query("SELECT new com.filestore.model.dto.ExpiredFile(f.id, f.storageKey, f.contentHash, f.shareToken, f.fileSize) " +
+            "FROM FileMetadata f " +
+            "WHERE f.expiryDate < :now AND f.isDeleted = false AND f.status = :status AND f.id > :afterId ORDER BY f.id")
+    List<ExpiredFile> findByExpiredFiles(LocalDateTime now, FileMetadata.Status status, UUID afterId, Limit limit);
+
+    // Uploads still PENDING after the cutoff died before completing; keyset paginated like the expired files.
+    // The status is a literal so the partial index on pending rows also matches the cached generic plan.
+    @Query(value = "SELECT id FROM files WHERE status = 'PENDING' AND created_at < :before AND id > :afterId " +
+            "ORDER BY id LIMIT :limit", nativeQuery = true)
+    List<UUID> findStalePendingIds(LocalDateTime before, UUID afterId, int limit);
+
+    // Only rows that are still PENDING are removed, and only their objects are returned for deletion, so an
+    // upload that completes concurrently keeps both its row and its object
+    @Transactional
+    @Query(value = "DELETE FROM files WHERE id IN :ids AND status = 'PENDING' RETURNING storage_key",
+            nativeQuery = true)
+    List<String> deletePending(Collection<UUID> ids);
+
+    // Returns only the ids this call actually deleted, so each row's blob reference is released exactly once
+    @Transactional
+    @Query(value = "UPDATE files SET is_deleted = true, updated_at = :now WHERE id IN :ids AND is_deleted = false " +
+            "RETURNING id", nativeQuery = true)
+    List<UUID> markDeleted(Collection<UUID> ids, LocalDateTime now);
+
+    // Moves rows deleted before the cutoff to files_archive in one statement, keeping the hot table and its
+    // indexes down to live files; returns how many rows were moved
+    @Transactional
+    @Modifying
+    @Query(value = "WITH archived AS (" +
+            "DELETE FROM files WHERE id IN (" +
+            "SELECT id FROM files WHERE is_deleted = true AND updated_at < :before LIMIT :limit) " +
+            "RETURNING *) " +
+            "INSERT INTO files_archive (id, original_file_name, file_size, mime_type, storage_key, content_hash, " +
+            "compression, stored_size, share_token, delete_token, upload_date, expiry_date, download_count, " +
+            "max_downloads, uploader_ip, collection_id, created_at, deleted_at) " +
+            "SELECT id, original_file_name, file_size, mime_type, storage_key, content_hash, compression, " +
+            "stored_size, share_token, delete_token, upload_date, expiry_date, download_count, max_downloads, " +
+            "uploader_ip, collection_id, created_at, updated_at FROM archived", nativeQuery = true)
+    int archiveDeleted(LocalDateTime before, int limit);
 
     @Query("SELECT f FROM FileMetadata f WHERE f.uploaderIp = :ip AND f.uploadDate > :since")
     List<FileMetadata> findRecentFilesByIp(String ip, LocalDateTime since);
 
-    long countByisDeletedFalse();
-
-    @Query("SELECT COALESCE(SUM(f.fileSize), 0) FROM FileMetadata f WHERE f.isDeleted = false")
-    Long calculateTotalStorageUsed();
+    // A full scan, so only the stats reconciliation runs it; everything else reads the maintained totals
+    @Query("SELECT new com.filestore.model.dto.StorageTotals(COUNT(f), COALESCE(SUM(f.fileSize), 0)) " +
+            "FROM FileMetadata f WHERE f.isDeleted = false AND f.status = :status")
+    StorageTotals calculateTotals(FileMetadata.Status status);
 }
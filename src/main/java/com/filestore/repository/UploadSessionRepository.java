@@ -0,0 +1,54 @@
+package com.filestore.repository;
+
+import com.filestore.model.entity.UploadSession;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.UUID;
+
+@Repository
+public interface UploadSessionRepository extends JpaRepository<UploadSession, UUID> {
+
+    @Transactional
+    @Modifying
+    @Query(value = "INSERT INTO upload_session_chunks (upload_session_id, chunk_index) VALUES (:sessionId, :chunkIndex) " +
+            "ON CONFLICT DO NOTHING", nativeQuery = true)
+    void markChunkUploaded(UUID sessionId, int chunkIndex);
+
+    @Transactional
+    @Modifying
+    @Query("UPDATE UploadSession s SET s.status = :to, s.updatedAt = :now WHERE s.id = :id AND s.status = :from")
+    int transitionStatus(UUID id, UploadSession.Status from, UploadSession.Status to, LocalDateTime now);
+
+    // Sessions that expired while still open, or whose completion stopped before it finished; keyset paginated
+    @Query(value = "SELECT id FROM upload_sessions " +
+            "WHERE ((status = 'ACTIVE' AND expires_at < :expiredBefore) " +
+            "OR (status = 'COMPLETING' AND updated_at < :completingBefore)) AND id > :afterId " +
+            "ORDER BY id LIMIT :limit", nativeQuery = true)
+    List<UUID> findAbandonedIds(LocalDateTime expiredBefore, LocalDateTime completingBefore, UUID afterId, int limit);
+
+    // The conditions are checked again, so a session completed or resumed since it was found is left alone;
+    // returns only the sessions this call aborted
+    @Transactional
+    @Query(value = "UPDATE upload_sessions SET status = 'ABORTED', updated_at = :now WHERE id IN :ids " +
+            "AND ((status = 'ACTIVE' AND expires_at < :expiredBefore) " +
+            "OR (status = 'COMPLETING' AND updated_at < :completingBefore)) RETURNING id", nativeQuery = true)
+    List<UUID> abortAbandoned(Collection<UUID> ids, LocalDateTime expiredBefore, LocalDateTime completingBefore,
+                              LocalDateTime now);
+
+    // Finished sessions are kept until well past their expiry so clients can still read their outcome
+    @Transactional
+    @Modifying
+    @Query(value = "WITH purged AS (" +
+            "SELECT id FROM upload_sessions WHERE status IN ('COMPLETED', 'ABORTED') AND expires_at < :before " +
+            "LIMIT :limit), " +
+            "chunks AS (DELETE FROM upload_session_chunks WHERE upload_session_id IN (SELECT id FROM purged)) " +
+            "DELETE FROM upload_sessions WHERE id IN (SELECT id FROM purged)", nativeQuery = true)
+    int purgeFinished(LocalDateTime before, int limit);
+}
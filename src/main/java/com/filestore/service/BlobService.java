@@ -0,0 +1,77 @@
+package com.filestore.service;
+
+import com.filestore.model.dto.StoredBlob;
+import com.filestore.repository.BlobRepository;
+import com.filestore.util.CompressionPolicy;
+import com.filestore.util.GzipCompressingInputStream;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.io.input.CountingInputStream;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.InputStream;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.List;
+
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class BlobService {
+
+    private final BlobRepository blobRepository;
+    private final StorageService storageService;
+    private final CompressionPolicy compressionPolicy;
+
+    // The hash covers the stored bytes, so content stored with different codecs never shares a blob
+    public StoredBlob upload(InputStream inputStream, long size, String contentType, String storageKey, String codec) {
+        InputStream source = CompressionPolicy.GZIP.equals(codec)
+                ? new GzipCompressingInputStream(inputStream, compressionPolicy.getLevel())
+                : inputStream;
+        long storedLength = codec != null ? -1 : size;
+
+        MessageDigest digest = newDigest();
+        CountingInputStream stored = new CountingInputStream(new DigestInputStream(source, digest));
+        storageService.uploadStream(stored, storedLength, contentType, storageKey);
+        return new StoredBlob(storageKey, HexFormat.of().formatHex(digest.digest()), stored.getByteCount());
+    }
+
+    public String acquire(StoredBlob blob) {
+        String storageKey = blobRepository.acquire(blob.contentHash(), blob.storageKey(), blob.storedSize());
+
+        // The content is already stored under another key, so the copy that was just written is redundant
+        if (!storageKey.equals(blob.storageKey())) {
+            try {
+                storageService.deleteFile(blob.storageKey());
+            } catch (RuntimeException e) {
+                log.warn("Error while deleting duplicate upload {}", blob.storageKey(), e);
+            }
+            log.debug("Deduplicated upload {} to existing blob {}", blob.storageKey(), storageKey);
+        }
+
+        return storageKey;
+    }
+
+    @Transactional
+    public String release(String contentHash, String storageKey, int references) {
+        // Files stored before deduplication, or assembled from chunks, own their object outright
+        if (contentHash == null) {
+            return storageKey;
+        }
+
+        blobRepository.release(contentHash, references);
+        List<String> unreferenced = blobRepository.deleteUnreferenced(contentHash);
+        return unreferenced.isEmpty() ? null : unreferenced.get(0);
+    }
+
+    private MessageDigest newDigest() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+}
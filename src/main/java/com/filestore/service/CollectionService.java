@@ -0,0 +1,319 @@
+package com.filestore.service;
+
+import com.filestore.exception.FileExpiredException;
+import com.filestore.exception.FileNotFoundException;
+import com.filestore.model.dto.BatchUploadResponse;
+import com.filestore.model.dto.FileTokens;
+import com.filestore.model.dto.UploadResponse;
+import com.filestore.model.entity.FileCollection;
+import com.filestore.model.entity.FileMetadata;
+import com.filestore.repository.FileCollectionRepository;
+import com.filestore.repository.FileMetadataRepository;
+import com.filestore.util.FileValidator;
+import com.filestore.util.PasswordUtil;
+import com.filestore.util.TokenGenerator;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.Deflater;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class CollectionService {
+
+    private static final int MAX_TOKEN_ATTEMPTS = 5;
+
+    // Keeps collection download tokens from being accepted for a file that happens to share the token
+    private static final String TOKEN_SUBJECT_PREFIX = "collection:";
+
+    private final FileCollectionRepository fileCollectionRepository;
+    private final FileMetadataRepository fileMetadataRepository;
+    private final FileService fileService;
+    private final StorageService storageService;
+    private final DownloadCounterService downloadCounterService;
+    private final PasswordVerificationService passwordVerificationService;
+    private final TransferMetrics transferMetrics;
+    private final TokenGenerator tokenGenerator;
+    private final FileValidator fileValidator;
+    private final PasswordUtil passwordUtil;
+    private final PlatformTransactionManager transactionManager;
+    private final MeterRegistry meterRegistry;
+
+    @Value("${filestore.upload.batch-max-files}")
+    private Integer batchMaxFiles;
+
+    @Value("${filestore.upload.batch-parallelism}")
+    private Integer batchParallelism;
+
+    @Value("${filestore.upload.batch-threads}")
+    private Integer batchThreads;
+
+    @Value("${filestore.upload.batch-queue-capacity}")
+    private Integer batchQueueCapacity;
+
+    @Value("${spring.threads.virtual.enabled:false}")
+    private boolean virtualThreads;
+
+    @Value("${server.servlet.context-path}")
+    private String contextPath;
+
+    private ThreadPoolExecutor storeExecutor;
+
+    // One pool for all batches, so concurrent batches share a fixed number of threads instead of each starting
+    // its own; when it is saturated the request thread stores the part itself, which slows the batch down
+    @PostConstruct
+    public void init() {
+        ThreadFactory threadFactory = virtualThreads
+                ? Thread.ofVirtual().name("batch-store-", 0).factory()
+                : Thread.ofPlatform().name("batch-store-", 0).daemon(true).factory();
+        storeExecutor = new ThreadPoolExecutor(batchThreads, batchThreads, 60, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(batchQueueCapacity),
+                threadFactory,
+                (task, executor) -> {
+                    if (executor.isShutdown()) {
+                        throw new RejectedExecutionException("Batch upload executor is shut down");
+                    }
+                    task.run();
+                });
+        storeExecutor.allowCoreThreadTimeOut(true);
+
+        Gauge.builder("filestore.upload.batch.queue", storeExecutor, executor -> executor.getQueue().size())
+                .register(meterRegistry);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        storeExecutor.shutdownNow();
+    }
+
+    public BatchUploadResponse uploadBatch(
+            List<MultipartFile> files,
+            Integer expiryHours,
+            String password,
+            Integer maxDownloads,
+            String uploaderIp
+    ) {
+        if (files == null || files.isEmpty()) {
+            throw new IllegalArgumentException("No files in batch");
+        }
+        if (files.size() > batchMaxFiles) {
+            throw new IllegalArgumentException(String.format("A batch can contain at most %d files", batchMaxFiles));
+        }
+
+        // Every part is checked before any is stored, so an invalid file rejects the batch without cleanup
+        transferMetrics.phase(TransferMetrics.UPLOAD, "validation", () -> files.forEach(fileValidator::validateFile));
+
+        List<FileTokens> tokens = transferMetrics.phase(TransferMetrics.UPLOAD, "tokens",
+                () -> fileService.reserveTokenBatch(files.size()));
+        String collectionToken = transferMetrics.phase(TransferMetrics.UPLOAD, "tokens", this::reserveCollectionToken);
+
+        // All files share the password, so it is hashed once rather than once per file
+        String passwordHash = password != null && !password.isEmpty()
+                ? transferMetrics.phase(TransferMetrics.UPLOAD, "password", () -> passwordUtil.hashPassword(password))
+                : null;
+
+        List<FileMetadata> pending = new ArrayList<>(files.size());
+        for (int i = 0; i < files.size(); i++) {
+            MultipartFile file = files.get(i);
+            pending.add(fileService.prepare(tokens.get(i), fileService.newStorageKey(file.getOriginalFilename()),
+                    file.getOriginalFilename(), file.getSize(), file.getContentType(), expiryHours, maxDownloads,
+                    uploaderIp));
+        }
+
+        // Its files decide what a collection still offers, so its own expiry is only a bound for housekeeping
+        FileCollection collection = FileCollection.builder()
+                .shareToken(collectionToken)
+                .passwordHash(passwordHash)
+                .expiryDate(pending.get(0).getExpiryDate())
+                .uploaderIp(uploaderIp)
+                .build();
+
+        // One short transaction inserts the collection and every PENDING row in JDBC batches
+        transferMetrics.phase(TransferMetrics.UPLOAD, "reserve",
+                () -> new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+                    fileCollectionRepository.save(collection);
+                    pending.forEach(file -> file.setCollectionId(collection.getId()));
+                    fileService.reserve(pending);
+                }));
+
+        List<UploadResponse> uploaded;
+        try {
+            storeAll(files, pending);
+            uploaded = transferMetrics.phase(TransferMetrics.UPLOAD, "db",
+                    () -> fileService.activate(pending, passwordHash));
+        } catch (RuntimeException e) {
+            fileService.discard(pending, true);
+            throw e;
+        }
+
+        log.debug("Batch of {} files uploaded successfully (collection: {})", uploaded.size(), collectionToken);
+
+        return BatchUploadResponse.builder()
+                .collectionUrl(contextPath + "/c/" + collectionToken)
+                .expiresAt(pending.get(0).getExpiryDate())
+                .files(uploaded)
+                .build();
+    }
+
+    // Deliberately not transactional, like single downloads: the archive is streamed long after this returns
+    public CollectionDownload downloadCollection(String shareToken, String password, String downloadToken,
+                                                 String clientIp) {
+        FileCollection collection = fileCollectionRepository.findByShareToken(shareToken)
+                .orElseThrow(() -> new FileNotFoundException("Collection not found"));
+
+        String issuedToken = transferMetrics.phase(TransferMetrics.DOWNLOAD, "password",
+                () -> passwordVerificationService.authorize(TOKEN_SUBJECT_PREFIX + shareToken,
+                        collection.getPasswordHash(), password, downloadToken, clientIp));
+
+        // Counts as one download of every file in it; files that are gone or used up are left out of the archive
+        List<FileMetadata> files = transferMetrics.phase(TransferMetrics.DOWNLOAD, "metadata", () ->
+                fileMetadataRepository.findByCollectionIdAndStatusAndIsDeletedFalseOrderByOriginalFileName(
+                        collection.getId(), FileMetadata.Status.ACTIVE)
+                        .stream()
+                        .filter(file -> !file.isExpired())
+                        .filter(downloadCounterService::tryIncrement)
+                        .toList());
+
+        if (files.isEmpty()) {
+            throw new FileExpiredException("No files in this collection are available anymore");
+        }
+
+        log.debug("Collection downloaded: {} files (shareToken: {})", files.size(), shareToken);
+
+        return new CollectionDownload("files-" + shareToken + ".zip", files, issuedToken);
+    }
+
+    // Each object is streamed from storage straight into the archive, so nothing is buffered or spooled
+    public void writeArchive(CollectionDownload download, DownloadStreamer.Transfer transfer, OutputStream out)
+            throws IOException {
+        ZipOutputStream zip = new ZipOutputStream(out);
+        Set<String> entryNames = new HashSet<>();
+
+        for (FileMetadata file : download.files()) {
+            ZipEntry entry = new ZipEntry(uniqueEntryName(file.getOriginalFileName(), entryNames));
+            entry.setLastModifiedTime(FileTime.from(file.getLastModified()));
+
+            // Only content worth compressing is deflated; images and archives are stored as they are
+            zip.setLevel(file.isCompressed() ? Deflater.BEST_SPEED : Deflater.NO_COMPRESSION);
+            zip.putNextEntry(entry);
+            transfer.copy(fileService.openContent(file), zip);
+            zip.closeEntry();
+        }
+
+        // Finished rather than closed: the container owns the response stream
+        zip.finish();
+        zip.flush();
+    }
+
+    private void storeAll(List<MultipartFile> files, List<FileMetadata> pending) {
+        List<Future<?>> results = new ArrayList<>(files.size());
+        // Bounds how much of the shared pool one batch can take
+        Semaphore inFlight = new Semaphore(batchParallelism);
+        for (int i = 0; i < files.size(); i++) {
+            MultipartFile file = files.get(i);
+            FileMetadata target = pending.get(i);
+            inFlight.acquireUninterruptibly();
+            try {
+                results.add(storeExecutor.submit(() -> {
+                    try {
+                        store(file, target);
+                    } finally {
+                        inFlight.release();
+                    }
+                }));
+            } catch (RejectedExecutionException e) {
+                inFlight.release();
+                throw e;
+            }
+        }
+
+        // Every part is waited for before failing, so the batch is never discarded while parts are still being stored
+        RuntimeException failure = null;
+        for (Future<?> result : results) {
+            try {
+                result.get();
+            } catch (ExecutionException e) {
+                if (failure == null) {
+                    failure = e.getCause() instanceof RuntimeException cause
+                            ? cause
+                            : new RuntimeException("Error while storing batch upload", e.getCause());
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new RuntimeException("Interrupted while storing batch upload", e);
+            }
+        }
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    private void store(MultipartFile file, FileMetadata pending) {
+        try (InputStream inputStream = file.getInputStream()) {
+            fileService.store(pending, inputStream, file.getSize());
+        } catch (IOException e) {
+            log.error("Error while reading uploaded file", e);
+            throw new RuntimeException("Error while reading uploaded file", e);
+        }
+    }
+
+    private String reserveCollectionToken() {
+        for (int attempt = 1; attempt <= MAX_TOKEN_ATTEMPTS; attempt++) {
+            String token = tokenGenerator.generateShareToken();
+            if (!fileCollectionRepository.existsByShareToken(token)) {
+                return token;
+            }
+            log.warn("Generated collection token already in use, retrying (attempt {})", attempt);
+        }
+        throw new IllegalStateException("Could not generate a unique collection token");
+    }
+
+    // Zip entry names must be unique, and one batch may well contain two files with the same name. Only the last
+    // path component of the uploaded name is kept, so no entry can be extracted outside the target directory.
+    static String uniqueEntryName(String fileName, Set<String> used) {
+        String safeName = fileName.substring(Math.max(fileName.lastIndexOf('/'), fileName.lastIndexOf('\\')) + 1);
+        if (safeName.isBlank() || safeName.equals(".") || safeName.equals("..")) {
+            safeName = "file";
+        }
+
+        String name = safeName;
+        int dot = safeName.lastIndexOf('.');
+        String base = dot > 0 ? safeName.substring(0, dot) : safeName;
+        String extension = dot > 0 ? safeName.substring(dot) : "";
+        for (int copy = 1; !used.add(name); copy++) {
+            name = base + " (" + copy + ")" + extension;
+        }
+        return name;
+    }
+
+    public record CollectionDownload(String archiveName, List<FileMetadata> files, String downloadToken) {
+    }
+}
@@ -0,0 +1,304 @@
+package com.filestore.service;
+
+import com.filestore.model.entity.FileMetadata;
+import com.filestore.repository.FileMetadataRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.Cursor;
+import org.springframework.data.redis.core.ScanOptions;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class DownloadCounterService {
+
+    private static final String COUNT_KEY_PREFIX = "filestore:downloads:count:";
+    private static final String PENDING_KEY = "filestore:downloads:pending";
+
+    // Set of the batch keys claimed from the pending hash and not flushed yet
+    private static final String BATCHES_KEY = "filestore:downloads:batches";
+
+    // Sorted set of file ids scored by their download count, for the most downloaded files in the stats
+    public static final String TOP_KEY = "filestore:downloads:top";
+
+    // Counters outlive their file by a day so late flushes and info lookups still see them
+    private static final Duration COUNT_KEY_GRACE = Duration.ofDays(1);
+
+    // Returned by the increment script when the counter is missing and no database count was passed to seed it
+    private static final long UNSEEDED = -2;
+
+    // KEYS: count key, pending hash, top set, batch set; ARGV: count read from the database ('' = none), max
+    // downloads (-1 = unlimited), file id, ttl seconds. Downloads counted but not flushed yet are not in the
+    // database count, so the pending delta and those of batches claimed by a flush still running are added when
+    // seeding. Batch keys that no longer exist are dropped from the set on the way.
+    private static final RedisScript<Long> INCREMENT_SCRIPT = RedisScript.of("""
+            local count = redis.call('GET', KEYS[1])
+            if count then
+                count = tonumber(count)
+            elseif ARGV[1] == '' then
+                return -2
+            else
+                count = tonumber(ARGV[1]) + tonumber(redis.call('HGET', KEYS[2], ARGV[3]) or '0')
+                for _, batch in ipairs(redis.call('SMEMBERS', KEYS[4])) do
+                    if redis.call('EXISTS', batch) == 1 then
+                        count = count + tonumber(redis.call('HGET', batch, ARGV[3]) or '0')
+                    else
+                        redis.call('SREM', KEYS[4], batch)
+                    end
+                end
+                redis.call('SET', KEYS[1], count, 'EX', ARGV[4])
+            end
+            local max = tonumber(ARGV[2])
+            if max >= 0 and count >= max then
+                return -1
+            end
+            redis.call('INCR', KEYS[1])
+            redis.call('HINCRBY', KEYS[2], ARGV[3], 1)
+            redis.call('ZADD', KEYS[3], count + 1, ARGV[3])
+            return count + 1
+            """, Long.class);
+
+    // Claims the pending deltas under a batch key so concurrent flushes on other nodes never see them twice. The
+    // batch is recorded in the batch set, so counters seeded before it is flushed still include it.
+    private static final RedisScript<Long> CLAIM_SCRIPT = RedisScript.of("""
+            if redis.call('EXISTS', KEYS[1]) == 1 then
+                redis.call('RENAME', KEYS[1], KEYS[2])
+                redis.call('SADD', KEYS[3], KEYS[2])
+                return 1
+            end
+            return 0
+            """, Long.class);
+
+    // Removes a flushed batch together with its entry in the batch set
+    private static final RedisScript<Long> DISCARD_SCRIPT = RedisScript.of("""
+            redis.call('SREM', KEYS[2], KEYS[1])
+            return redis.call('DEL', KEYS[1])
+            """, Long.class);
+
+    // Returns a claimed batch to the pending hash in one step, so it is never partly returned and then lost
+    private static final RedisScript<Long> RESTORE_SCRIPT = RedisScript.of("""
+            if redis.call('EXISTS', KEYS[1]) == 0 then
+                return 0
+            end
+            local entries = redis.call('HGETALL', KEYS[1])
+            for i = 1, #entries, 2 do
+                redis.call('HINCRBY', KEYS[2], entries[i], entries[i + 1])
+            end
+            redis.call('DEL', KEYS[1])
+            redis.call('SREM', KEYS[3], KEYS[1])
+            return #entries / 2
+            """, Long.class);
+
+    private final StringRedisTemplate redisTemplate;
+    private final FileMetadataRepository fileMetadataRepository;
+    private final JdbcTemplate jdbcTemplate;
+    private final PlatformTransactionManager transactionManager;
+    private final StorageStatsService storageStatsService;
+
+    @Value("${filestore.downloads.flush-batch-size}")
+    private Integer flushBatchSize;
+
+    // Batches claimed longer ago than this belong to a node that died before finishing the flush
+    @Value("${filestore.downloads.orphan-batch-age-ms}")
+    private Long orphanBatchAgeMs;
+
+    // Files counted in the database while Redis was failing whose Redis counters could not be dropped straight
+    // away; they are dropped once it is back
+    private final Set<UUID> staleCounters = ConcurrentHashMap.newKeySet();
+
+    public boolean tryIncrement(FileMetadata metadata) {
+        UUID fileId = metadata.getId();
+        String countKey = COUNT_KEY_PREFIX + fileId;
+        List<String> keys = List.of(countKey, PENDING_KEY, TOP_KEY, BATCHES_KEY);
+        String maxDownloads = String.valueOf(metadata.getMaxDownloads() != null ? metadata.getMaxDownloads() : -1);
+        String ttlSeconds = String.valueOf(countKeyTtl(metadata).toSeconds());
+
+        try {
+            if (staleCounters.remove(fileId)) {
+                redisTemplate.delete(countKey);
+            }
+
+            Long count = redisTemplate.execute(INCREMENT_SCRIPT, keys, "", maxDownloads, fileId.toString(), ttlSeconds);
+            if (count != null && count == UNSEEDED) {
+                // Seeded from a fresh read rather than the cached metadata, which may be minutes old; only the
+                // first download after the counter expired or was dropped pays for it
+                Integer persisted = persistedDownloadCount(fileId);
+                if (persisted == null) {
+                    return false;
+                }
+                count = redisTemplate.execute(INCREMENT_SCRIPT, keys, String.valueOf(persisted), maxDownloads,
+                        fileId.toString(), ttlSeconds);
+            }
+            return count != null && count > 0;
+        } catch (RuntimeException e) {
+            // Without Redis the limit is still enforced by a conditional UPDATE, just without batching. The
+            // Redis counter misses this download, so it is dropped and every node reseeds it from the database.
+            log.warn("Error while incrementing download counter in Redis, falling back to database (fileId: {})",
+                    fileId, e);
+            boolean counted = fileMetadataRepository.incrementDownloadCount(fileId) > 0;
+            dropCounter(fileId);
+            return counted;
+        }
+    }
+
+    public int getDownloadCount(FileMetadata metadata) {
+        return getDownloadCount(metadata.getId(), metadata.getDownloadCount());
+    }
+
+    // The Redis counter includes downloads not flushed yet; the persisted count is used when there is none
+    public int getDownloadCount(UUID fileId, int persistedCount) {
+        try {
+            String count = redisTemplate.opsForValue().get(COUNT_KEY_PREFIX + fileId);
+            if (count != null) {
+                return Integer.parseInt(count);
+            }
+        } catch (RuntimeException e) {
+            log.debug("Error while reading download counter from Redis (fileId: {})", fileId, e);
+        }
+        return persistedCount;
+    }
+
+    public boolean isLimitReached(FileMetadata metadata) {
+        return metadata.getMaxDownloads() != null && getDownloadCount(metadata) >= metadata.getMaxDownloads();
+    }
+
+    @Scheduled(fixedDelayString = "${filestore.downloads.flush-interval-ms}")
+    public void flush() {
+        dropStaleCounters();
+
+        // The claim time is part of the key, so a batch abandoned by a node that died can be told apart
+        String batchKey = PENDING_KEY + ":" + System.currentTimeMillis() + ":" + UUID.randomUUID();
+
+        Map<Object, Object> deltas;
+        try {
+            Long claimed = redisTemplate.execute(CLAIM_SCRIPT, List.of(PENDING_KEY, batchKey, BATCHES_KEY));
+            if (claimed == null || claimed == 0) {
+                return;
+            }
+            deltas = redisTemplate.opsForHash().entries(batchKey);
+        } catch (RuntimeException e) {
+            log.debug("Error while claiming pending download counts from Redis", e);
+            return;
+        }
+
+        List<Object[]> updates = deltas.entrySet().stream()
+                .map(entry -> new Object[]{Long.parseLong((String) entry.getValue()), UUID.fromString((String) entry.getKey())})
+                .toList();
+        long downloads = updates.stream().mapToLong(update -> (Long) update[0]).sum();
+
+        try {
+            // Plain SQL so the flush neither loads the entities nor touches updatedAt
+            new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+                jdbcTemplate.batchUpdate("UPDATE files SET download_count = download_count + ? WHERE id = ?",
+                        updates, flushBatchSize, (ps, update) -> {
+                            ps.setLong(1, (Long) update[0]);
+                            ps.setObject(2, update[1]);
+                        });
+                storageStatsService.recordDownloads(downloads);
+            });
+            log.debug("Flushed download counts for {} files", updates.size());
+        } catch (RuntimeException e) {
+            log.warn("Error while flushing {} download counts, returning them to the pending set", updates.size(), e);
+            // Left in place if this fails too; the orphan sweep returns it later
+            redisTemplate.execute(RESTORE_SCRIPT, List.of(batchKey, PENDING_KEY, BATCHES_KEY));
+            return;
+        }
+
+        redisTemplate.execute(DISCARD_SCRIPT, List.of(batchKey, BATCHES_KEY));
+    }
+
+    // Returns batches a node claimed but never flushed, because it died between the claim and the UPDATE. A node
+    // dying between the commit and deleting its batch would count that batch twice; that window is far shorter.
+    @Scheduled(fixedDelayString = "${filestore.downloads.orphan-sweep-interval-ms}")
+    public void recoverOrphanedBatches() {
+        long claimedBefore = System.currentTimeMillis() - orphanBatchAgeMs;
+        ScanOptions options = ScanOptions.scanOptions().match(PENDING_KEY + ":*").count(100).build();
+
+        try (Cursor<String> keys = redisTemplate.scan(options)) {
+            while (keys.hasNext()) {
+                String batchKey = keys.next();
+                if (claimedAt(batchKey) < claimedBefore) {
+                    Long restored = redisTemplate.execute(RESTORE_SCRIPT, List.of(batchKey, PENDING_KEY, BATCHES_KEY));
+                    if (restored != null && restored > 0) {
+                        log.warn("Returned {} download counts from an abandoned flush batch {}", restored, batchKey);
+                    }
+                }
+            }
+        } catch (RuntimeException e) {
+            log.debug("Error while sweeping abandoned download count batches in Redis", e);
+        }
+    }
+
+    // Deleted and expired files leave the most downloaded set; their count keys expire on their own
+    public void forget(Collection<UUID> fileIds) {
+        if (fileIds.isEmpty()) {
+            return;
+        }
+        try {
+            redisTemplate.opsForZSet().remove(TOP_KEY, fileIds.stream().map(UUID::toString).toArray());
+        } catch (RuntimeException e) {
+            log.debug("Error while removing files from the download ranking in Redis", e);
+        }
+    }
+
+    // Dropped after the database update, so a node reseeding the counter meanwhile reads the count including it
+    private void dropCounter(UUID fileId) {
+        try {
+            redisTemplate.delete(COUNT_KEY_PREFIX + fileId);
+        } catch (RuntimeException e) {
+            log.debug("Error while dropping stale download counter from Redis (fileId: {})", fileId, e);
+            staleCounters.add(fileId);
+        }
+    }
+
+    private void dropStaleCounters() {
+        for (UUID fileId : staleCounters) {
+            try {
+                redisTemplate.delete(COUNT_KEY_PREFIX + fileId);
+                staleCounters.remove(fileId);
+            } catch (RuntimeException e) {
+                log.debug("Error while dropping stale download counters from Redis", e);
+                return;
+            }
+        }
+    }
+
+    private Integer persistedDownloadCount(UUID fileId) {
+        List<Integer> counts = jdbcTemplate.queryForList(
+                "SELECT download_count FROM files WHERE id = ? AND is_deleted = false", Integer.class, fileId);
+        return counts.isEmpty() ? null : counts.get(0);
+    }
+
+    // Batch keys without a parseable claim time are treated as abandoned
+    private static long claimedAt(String batchKey) {
+        String suffix = batchKey.substring(PENDING_KEY.length() + 1);
+        int separator = suffix.indexOf(':');
+        try {
+            return separator > 0 ? Long.parseLong(suffix.substring(0, separator)) : 0;
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+
+    private Duration countKeyTtl(FileMetadata metadata) {
+        Duration untilExpiry = Duration.between(LocalDateTime.now(), metadata.getExpiryDate());
+        return (untilExpiry.isNegative() ? Duration.ZERO : untilExpiry).plus(COUNT_KEY_GRACE);
+    }
+}
@@ -0,0 +1,96 @@
+package com.filestore.service;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.concurrent.TimeUnit;
+
+@Service
+@RequiredArgsConstructor
+public class DownloadStreamer {
+
+    private final MeterRegistry meterRegistry;
+    private final TransferMetrics transferMetrics;
+
+    @Value("${filestore.downloads.buffer-size-bytes}")
+    private Integer bufferSize;
+
+    private Timer timeToFirstByte;
+    private Timer streamDuration;
+    private DistributionSummary throughput;
+
+    @PostConstruct
+    public void init() {
+        timeToFirstByte = Timer.builder("filestore.download.time-to-first-byte")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+        streamDuration = Timer.builder("filestore.download.stream.duration")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+        throughput = DistributionSummary.builder("filestore.download.throughput")
+                .baseUnit("bytes/s")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+    }
+
+    // Counted as in flight until closed, so callers create it where the body is actually written
+    public Transfer start(long requestStartNanos) {
+        return new Transfer(requestStartNanos);
+    }
+
+    public class Transfer implements Closeable {
+
+        private final long requestStartNanos;
+        private final byte[] buffer = new byte[bufferSize];
+        private long streamStartNanos;
+        private long bytesWritten;
+
+        private Transfer(long requestStartNanos) {
+            this.requestStartNanos = requestStartNanos;
+            transferMetrics.downloadStarted();
+        }
+
+        public void copy(InputStream in, OutputStream out) throws IOException {
+            try (in) {
+                int n;
+                while ((n = in.read(buffer)) != -1) {
+                    out.write(buffer, 0, n);
+                    if (bytesWritten == 0) {
+                        // Push the first buffer out so time-to-first-byte measures what the client sees
+                        out.flush();
+                        streamStartNanos = System.nanoTime();
+                        timeToFirstByte.record(streamStartNanos - requestStartNanos, TimeUnit.NANOSECONDS);
+                    }
+                    bytesWritten += n;
+                }
+            }
+        }
+
+        public void complete() {
+            if (bytesWritten == 0) {
+                return;
+            }
+
+            long elapsedNanos = System.nanoTime() - streamStartNanos;
+            streamDuration.record(elapsedNanos, TimeUnit.NANOSECONDS);
+            if (elapsedNanos > 0) {
+                throughput.record(bytesWritten * 1_000_000_000d / elapsedNanos);
+            }
+        }
+
+        // Also called when the client goes away mid-transfer, so aborted downloads still count their bytes
+        @Override
+        public void close() {
+            transferMetrics.downloadFinished(bytesWritten);
+        }
+    }
+}
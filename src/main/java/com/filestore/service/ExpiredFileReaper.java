@@ -0,0 +1,202 @@
+package com.filestore.service;
+
+import com.filestore.model.dto.ExpiredFile;
+import com.filestore.model.entity.FileMetadata;
+import com.filestore.repository.FileCollectionRepository;
+import com.filestore.repository.FileMetadataRepository;
+import com.filestore.util.RedisLock;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Limit;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class ExpiredFileReaper {
+
+    private static final String LOCK_NAME = "expired-file-reaper";
+    private static final UUID FIRST_ID = new UUID(0, 0);
+
+    private final FileMetadataRepository fileMetadataRepository;
+    private final FileCollectionRepository fileCollectionRepository;
+    private final FileMetadataCache fileMetadataCache;
+    private final StorageService storageService;
+    private final BlobService blobService;
+    private final StorageStatsService storageStatsService;
+    private final DownloadCounterService downloadCounterService;
+    private final RedisLock redisLock;
+    private final PlatformTransactionManager transactionManager;
+
+    @Value("${filestore.reaper.batch-size}")
+    private Integer batchSize;
+
+    @Value("${filestore.reaper.parallelism}")
+    private Integer parallelism;
+
+    @Value("${filestore.reaper.lock-ttl-seconds}")
+    private Long lockTtlSeconds;
+
+    // Deleted rows stay in the files table this long, so a repeated delete still reports the file as deleted
+    @Value("${filestore.reaper.archive-after-hours}")
+    private Long archiveAfterHours;
+
+    public void reapExpiredFiles() {
+        String lockToken = redisLock.tryAcquire(LOCK_NAME, Duration.ofSeconds(lockTtlSeconds));
+        if (lockToken == null) {
+            log.debug("Expired file reaper is already running on another node");
+            return;
+        }
+
+        try {
+            int reaped = reap(LocalDateTime.now());
+            if (reaped > 0) {
+                log.info("Reaped {} expired files", reaped);
+            }
+
+            int archived = archive(LocalDateTime.now().minusHours(archiveAfterHours));
+            if (archived > 0) {
+                log.info("Archived {} deleted files", archived);
+            }
+
+            int collections = purgeCollections(LocalDateTime.now());
+            if (collections > 0) {
+                log.info("Removed {} expired collections", collections);
+            }
+        } finally {
+            redisLock.release(LOCK_NAME, lockToken);
+        }
+    }
+
+    private int reap(LocalDateTime now) {
+        AtomicInteger reaped = new AtomicInteger();
+        Semaphore inFlight = new Semaphore(parallelism);
+
+        try (ExecutorService executor = Executors.newFixedThreadPool(parallelism)) {
+            UUID afterId = FIRST_ID;
+            List<ExpiredFile> page;
+            do {
+                page = fileMetadataRepository.findByExpiredFiles(now, FileMetadata.Status.ACTIVE, afterId,
+                        Limit.of(batchSize));
+                if (page.isEmpty()) {
+                    break;
+                }
+                afterId = page.get(page.size() - 1).id();
+
+                // Bounds both MinIO concurrency and how many pages are held in memory ahead of the deletes
+                inFlight.acquireUninterruptibly();
+                List<ExpiredFile> batch = page;
+                executor.execute(() -> {
+                    try {
+                        reaped.addAndGet(reapBatch(batch, now));
+                    } finally {
+                        inFlight.release();
+                    }
+                });
+            } while (page.size() == batchSize);
+        }
+
+        return reaped.get();
+    }
+
+    // One short transaction per batch, so archiving a large backlog never holds locks for long
+    private int archive(LocalDateTime before) {
+        int archived = 0;
+        try {
+            int moved;
+            do {
+                moved = fileMetadataRepository.archiveDeleted(before, batchSize);
+                archived += moved;
+            } while (moved == batchSize);
+        } catch (RuntimeException e) {
+            log.warn("Error while archiving deleted files", e);
+        }
+        return archived;
+    }
+
+    // Runs after the reap, so a collection goes in the same sweep as its last file
+    private int purgeCollections(LocalDateTime now) {
+        int purged = 0;
+        try {
+            int removed;
+            do {
+                removed = fileCollectionRepository.deleteExpiredEmpty(now, batchSize);
+                purged += removed;
+            } while (removed == batchSize);
+        } catch (RuntimeException e) {
+            log.warn("Error while removing expired collections", e);
+        }
+        return purged;
+    }
+
+    private int reapBatch(List<ExpiredFile> batch, LocalDateTime now) {
+        try {
+            // The totals and the blob references change in the same transaction as the rows, so they never count a
+            // reaped file and a crash cannot leave a blob referenced by files that are gone. The objects are removed
+            // only once that has committed.
+            ReapedBatch reapedBatch = new TransactionTemplate(transactionManager).execute(status -> {
+                Set<UUID> deletedIds = new HashSet<>(fileMetadataRepository.markDeleted(batch.stream()
+                        .map(ExpiredFile::id)
+                        .toList(), now));
+                List<ExpiredFile> marked = batch.stream()
+                        .filter(file -> deletedIds.contains(file.id()))
+                        .toList();
+                storageStatsService.recordDeletions(marked.size(),
+                        marked.stream().mapToLong(ExpiredFile::fileSize).sum());
+                return new ReapedBatch(marked, release(marked));
+            });
+            List<ExpiredFile> deleted = reapedBatch.deleted();
+            List<String> unreferencedKeys = reapedBatch.unreferencedKeys();
+
+            List<String> failedKeys = storageService.deleteFiles(unreferencedKeys);
+            if (!failedKeys.isEmpty()) {
+                log.warn("Could not remove {} objects of expired files, they are left orphaned: {}",
+                        failedKeys.size(), failedKeys);
+            }
+
+            deleted.forEach(file -> fileMetadataCache.evict(file.shareToken()));
+            downloadCounterService.forget(deleted.stream().map(ExpiredFile::id).toList());
+            return deleted.size();
+        } catch (RuntimeException e) {
+            log.warn("Error while reaping a batch of {} expired files", batch.size(), e);
+            return 0;
+        }
+    }
+
+    // Deduplicated content is released once per hash; only blobs nobody references any more are returned
+    private List<String> release(List<ExpiredFile> deleted) {
+        List<String> unreferencedKeys = new ArrayList<>();
+        deleted.stream()
+                .filter(file -> file.contentHash() == null)
+                .forEach(file -> unreferencedKeys.add(file.storageKey()));
+        deleted.stream()
+                .filter(file -> file.contentHash() != null)
+                .collect(Collectors.groupingBy(ExpiredFile::contentHash, Collectors.toList()))
+                .forEach((contentHash, files) -> {
+                    String storageKey = blobService.release(contentHash, files.get(0).storageKey(), files.size());
+                    if (storageKey != null) {
+                        unreferencedKeys.add(storageKey);
+                    }
+                });
+        return unreferencedKeys;
+    }
+
+    private record ReapedBatch(List<ExpiredFile> deleted, List<String> unreferencedKeys) {
+    }
+}
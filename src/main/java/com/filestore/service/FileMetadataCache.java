@@ -0,0 +1,227 @@
+package com.filestore.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.filestore.model.dto.CachedFile;
+import com.filestore.model.entity.FileMetadata;
+import com.filestore.repository.FileMetadataRepository;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Optional;
+
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class FileMetadataCache {
+
+    // Versioned: entries written in the earlier full-entity format are never read back as a CachedFile
+    private static final String KEY_PREFIX = "filestore:file:v2:share:";
+    private static final String NOT_FOUND = "-";
+
+    private final FileMetadataRepository fileMetadataRepository;
+    private final StringRedisTemplate redisTemplate;
+    private final ObjectMapper objectMapper;
+    private final MeterRegistry meterRegistry;
+
+    @Value("${filestore.cache.metadata.local-max-entries}")
+    private Long localMaxEntries;
+
+    @Value("${filestore.cache.metadata.local-ttl-seconds}")
+    private Long localTtlSeconds;
+
+    @Value("${filestore.cache.metadata.redis-ttl-seconds}")
+    private Long redisTtlSeconds;
+
+    @Value("${filestore.cache.metadata.negative-ttl-seconds}")
+    private Long negativeTtlSeconds;
+
+    private Cache<String, Optional<FileMetadata>> localCache;
+    private Counter redisHits;
+    private Counter redisMisses;
+    private Counter redisErrors;
+
+    @PostConstruct
+    public void init() {
+        localCache = Caffeine.newBuilder()
+                .maximumSize(localMaxEntries)
+                .expireAfter(new Expiry<String, Optional<FileMetadata>>() {
+                    @Override
+                    public long expireAfterCreate(String key, Optional<FileMetadata> value, long currentTime) {
+                        return timeToLive(value, Duration.ofSeconds(localTtlSeconds)).toNanos();
+                    }
+
+                    @Override
+                    public long expireAfterUpdate(String key, Optional<FileMetadata> value, long currentTime, long currentDuration) {
+                        return expireAfterCreate(key, value, currentTime);
+                    }
+
+                    @Override
+                    public long expireAfterRead(String key, Optional<FileMetadata> value, long currentTime, long currentDuration) {
+                        return currentDuration;
+                    }
+                })
+                .recordStats()
+                .build();
+
+        CaffeineCacheMetrics.monitor(meterRegistry, localCache, "fileMetadata.local");
+
+        redisHits = meterRegistry.counter("filestore.cache.redis", "cache", "fileMetadata", "result", "hit");
+        redisMisses = meterRegistry.counter("filestore.cache.redis", "cache", "fileMetadata", "result", "miss");
+        redisErrors = meterRegistry.counter("filestore.cache.redis", "cache", "fileMetadata", "result", "error");
+    }
+
+    public Optional<FileMetadata> findByShareToken(String shareToken) {
+        Optional<FileMetadata> metadata = localCache.getIfPresent(shareToken);
+        if (metadata != null) {
+            return metadata;
+        }
+
+        metadata = readRemote(shareToken);
+        if (metadata == null) {
+            metadata = fileMetadataRepository.findByShareTokenAndStatus(shareToken, FileMetadata.Status.ACTIVE);
+            writeRemote(shareToken, metadata);
+        }
+
+        localCache.put(shareToken, metadata);
+        return metadata;
+    }
+
+    // Answers from the cache tiers only, without going to the database; null when neither holds the token
+    public Optional<FileMetadata> peek(String shareToken) {
+        Optional<FileMetadata> metadata = localCache.getIfPresent(shareToken);
+        if (metadata != null) {
+            return metadata;
+        }
+
+        metadata = readRemote(shareToken);
+        if (metadata != null) {
+            localCache.put(shareToken, metadata);
+        }
+        return metadata;
+    }
+
+    public void evict(String shareToken) {
+        // Evicting before commit would let a concurrent lookup re-cache the old row
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    evictNow(shareToken);
+                }
+            });
+        } else {
+            evictNow(shareToken);
+        }
+    }
+
+    private void evictNow(String shareToken) {
+        localCache.invalidate(shareToken);
+
+        try {
+            redisTemplate.delete(KEY_PREFIX + shareToken);
+        } catch (RuntimeException e) {
+            redisErrors.increment();
+            log.warn("Error while evicting file metadata from Redis (shareToken: {})", shareToken, e);
+        }
+    }
+
+    private Optional<FileMetadata> readRemote(String shareToken) {
+        try {
+            String value = redisTemplate.opsForValue().get(KEY_PREFIX + shareToken);
+            if (value == null) {
+                redisMisses.increment();
+                return null;
+            }
+
+            redisHits.increment();
+            return NOT_FOUND.equals(value)
+                    ? Optional.empty()
+                    : Optional.of(toMetadata(objectMapper.readValue(value, CachedFile.class)));
+        } catch (JsonProcessingException | RuntimeException e) {
+            // Redis is only a cache tier, lookups fall through to the database when it is unavailable
+            redisErrors.increment();
+            log.debug("Error while reading file metadata from Redis (shareToken: {})", shareToken, e);
+            return null;
+        }
+    }
+
+    // Password-protected files stay in the local tier only: their hash is needed to verify downloads, and is
+    // never copied into Redis
+    private void writeRemote(String shareToken, Optional<FileMetadata> metadata) {
+        if (metadata.isPresent() && metadata.get().isPasswordProtected()) {
+            return;
+        }
+
+        try {
+            String value = metadata.isPresent() ? objectMapper.writeValueAsString(toCached(metadata.get())) : NOT_FOUND;
+            redisTemplate.opsForValue().set(KEY_PREFIX + shareToken, value,
+                    timeToLive(metadata, Duration.ofSeconds(redisTtlSeconds)));
+        } catch (JsonProcessingException | RuntimeException e) {
+            redisErrors.increment();
+            log.debug("Error while writing file metadata to Redis (shareToken: {})", shareToken, e);
+        }
+    }
+
+    private static CachedFile toCached(FileMetadata file) {
+        return new CachedFile(file.getId(), file.getOriginalFileName(), file.getFileSize(), file.getMimeType(),
+                file.getStorageKey(), file.getCompression(), file.getStoredSize(), file.getShareToken(),
+                file.getUploadDate(), file.getExpiryDate(), file.getDownloadCount(), file.getMaxDownloads(),
+                file.getIsDeleted(), file.getUpdatedAt());
+    }
+
+    // Only unprotected files are in Redis, so the missing password hash is correct rather than lost
+    private static FileMetadata toMetadata(CachedFile cached) {
+        return FileMetadata.builder()
+                .id(cached.id())
+                .originalFileName(cached.originalFileName())
+                .fileSize(cached.fileSize())
+                .mimeType(cached.mimeType())
+                .storageKey(cached.storageKey())
+                .compression(cached.compression())
+                .storedSize(cached.storedSize())
+                .shareToken(cached.shareToken())
+                .uploadDate(cached.uploadDate())
+                .expiryDate(cached.expiryDate())
+                .downloadCount(cached.downloadCount())
+                .maxDownloads(cached.maxDownloads())
+                .isDeleted(cached.isDeleted())
+                .status(FileMetadata.Status.ACTIVE)
+                .updatedAt(cached.updatedAt())
+                .build();
+    }
+
+    private Duration timeToLive(Optional<FileMetadata> metadata, Duration maxTtl) {
+        Duration negativeTtl = Duration.ofSeconds(negativeTtlSeconds);
+        if (metadata.isEmpty()) {
+            return negativeTtl;
+        }
+
+        FileMetadata file = metadata.get();
+        if (file.getIsDeleted()) {
+            return negativeTtl;
+        }
+
+        // An entry never outlives the file it describes; once expired the row is terminal and cached like a miss
+        Duration untilExpiry = Duration.between(LocalDateTime.now(), file.getExpiryDate());
+        if (untilExpiry.isNegative() || untilExpiry.isZero()) {
+            return negativeTtl;
+        }
+
+        return untilExpiry.compareTo(maxTtl) < 0 ? untilExpiry : maxTtl;
+    }
+}
@@ -2,42 +2,94 @@ package com.filestore.service;
 
 import com.filestore.exception.FileExpiredException;
 import com.filestore.exception.FileNotFoundException;
-import com.filestore.exception.InvalidPasswordException;
+import com.filestore.model.dto.ByteRange;
+import com.filestore.model.dto.FileInfo;
 import com.filestore.model.dto.FileInfoResponse;
+import com.filestore.model.dto.FileTokens;
+import com.filestore.model.dto.StoredBlob;
 import com.filestore.model.dto.UploadResponse;
 import com.filestore.model.entity.FileMetadata;
 import com.filestore.repository.FileMetadataRepository;
+import com.filestore.util.ByteRangeResolver;
+import com.filestore.util.CompressionPolicy;
 import com.filestore.util.FileValidator;
 import com.filestore.util.PasswordUtil;
+import com.filestore.util.SizeLimitingInputStream;
 import com.filestore.util.TokenGenerator;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.io.IOUtils;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
 import org.springframework.web.multipart.MultipartFile;
 
+import java.io.IOException;
 import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
 import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.stream.IntStream;
+import java.util.zip.GZIPInputStream;
 
 @Service
 @RequiredArgsConstructor
 @Slf4j
 public class FileService {
 
+    private static final int MAX_TOKEN_ATTEMPTS = 5;
+
+    private static final String ACTIVATE_SQL = "UPDATE files SET status = 'ACTIVE', storage_key = ?, file_size = ?, " +
+            "content_hash = ?, compression = ?, stored_size = ?, password_hash = ?, upload_date = ?, expiry_date = ?, " +
+            "updated_at = ? WHERE id = ? AND status = 'PENDING'";
+
     private final FileMetadataRepository fileMetadataRepository;
+    private final FileMetadataCache fileMetadataCache;
+    private final DownloadCounterService downloadCounterService;
     private final StorageService storageService;
+    private final BlobService blobService;
     private final TokenGenerator tokenGenerator;
     private final FileValidator fileValidator;
     private final PasswordUtil passwordUtil;
+    private final PasswordVerificationService passwordVerificationService;
+    private final ByteRangeResolver byteRangeResolver;
+    private final TransferMetrics transferMetrics;
+    private final CompressionPolicy compressionPolicy;
+    private final StorageStatsService storageStatsService;
+    private final JdbcTemplate jdbcTemplate;
+    private final PlatformTransactionManager transactionManager;
 
     @Value("${filestore.file.default-expiry-hours}")
     private Integer defaultExpiryHours;
 
+    @Value("${filestore.presigned.enabled}")
+    private boolean presignedEnabled;
+
+    @Value("${filestore.presigned.download-url-expiry-seconds}")
+    private Long downloadUrlExpirySeconds;
+
+    @Value("${filestore.cache.info.max-age-seconds}")
+    private Long infoMaxAgeSeconds;
+
     @Value("${server.servlet.context-path}")
     private String contextPath;
 
-    @Transactional
     public UploadResponse uploadFile(
             MultipartFile file,
             Integer expiryHours,
@@ -47,122 +99,414 @@ public class FileService {
     ) {
         fileValidator.validateFile(file);
 
-        String shareToken = tokenGenerator.generateShareToken();
-        String deleteToken = tokenGenerator.generateDeleteToken();
-        String fileExtension = fileValidator.getFileExtension(file.getOriginalFilename());
-        String storageFileName = tokenGenerator.generateStorageFileName(fileExtension);
-        String storageKey = "uploads/" + storageFileName;
+        try (InputStream inputStream = file.getInputStream()) {
+            return uploadStream(inputStream, file.getOriginalFilename(), file.getSize(), file.getContentType(),
+                    expiryHours, password, maxDownloads, uploaderIp);
+        } catch (IOException e) {
+            log.error("Error while reading uploaded file", e);
+            throw new RuntimeException("Error while reading uploaded file", e);
+        }
+    }
+
+    public UploadResponse uploadStream(
+            InputStream inputStream,
+            String fileName,
+            long contentLength,
+            String contentType,
+            Integer expiryHours,
+            String password,
+            Integer maxDownloads,
+            String uploaderIp
+    ) {
+        // A declared length is checked up front; chunked bodies are only bounded by the limiting stream
+        transferMetrics.phase(TransferMetrics.UPLOAD, "validation", () -> {
+            if (contentLength >= 0) {
+                fileValidator.validateFile(fileName, contentLength);
+            } else {
+                fileValidator.validateFileName(fileName);
+            }
+        });
+
+        FileMetadata pending = transferMetrics.phase(TransferMetrics.UPLOAD, "reserve", () -> reserve(List.of(
+                prepare(reserveTokens(), newStorageKey(fileName), fileName, contentLength, contentType,
+                        expiryHours, maxDownloads, uploaderIp))).get(0));
+
+        // No transaction or pooled connection is held while the bytes are transferred
+        try {
+            store(pending, inputStream, contentLength);
+
+            String passwordHash = password != null && !password.isEmpty()
+                    ? transferMetrics.phase(TransferMetrics.UPLOAD, "password", () -> passwordUtil.hashPassword(password))
+                    : null;
 
-        storageService.uploadFile(file, storageKey);
+            return transferMetrics.phase(TransferMetrics.UPLOAD, "db",
+                    () -> activate(List.of(pending), passwordHash).get(0));
+        } catch (RuntimeException e) {
+            discard(List.of(pending), true);
+            throw e;
+        }
+    }
 
-        String passwordHash = password != null && !password.isEmpty() ? passwordUtil.hashPassword(password) : null;
+    public String newStorageKey(String fileName) {
+        return "uploads/" + tokenGenerator.generateStorageFileName(fileValidator.getFileExtension(fileName));
+    }
 
+    // Describes an upload before any of it is stored; the row is only visible to downloads once activated
+    public FileMetadata prepare(FileTokens tokens, String storageKey, String fileName, long contentLength,
+                                String contentType, Integer expiryHours, Integer maxDownloads, String uploaderIp) {
         int hoursUntilExpiry = expiryHours != null ? expiryHours : defaultExpiryHours;
-        LocalDateTime expiryDate = LocalDateTime.now().plusHours(hoursUntilExpiry);
+        LocalDateTime now = LocalDateTime.now();
 
-        FileMetadata metadata = FileMetadata.builder()
-                .originalFileName(file.getOriginalFilename())
-                .fileSize(file.getSize())
-                .mimeType(file.getContentType())
+        return FileMetadata.builder()
+                .originalFileName(fileName)
+                .fileSize(Math.max(contentLength, 0))
+                .mimeType(contentType != null && !contentType.isEmpty() ? contentType : "application/octet-stream")
                 .storageKey(storageKey)
-                .shareToken(shareToken)
-                .deleteToken(deleteToken)
-                .passwordHash(passwordHash)
-                .uploadDate(LocalDateTime.now())
-                .expiryDate(expiryDate)
+                .shareToken(tokens.shareToken())
+                .deleteToken(tokens.deleteToken())
+                .uploadDate(now)
+                .expiryDate(now.plusHours(hoursUntilExpiry))
                 .downloadCount(0)
                 .maxDownloads(maxDownloads)
                 .isDeleted(false)
                 .uploaderIp(uploaderIp)
+                .status(FileMetadata.Status.PENDING)
                 .build();
+    }
+
+    // Step one: a short transaction records the storage key before anything is written to it
+    public List<FileMetadata> reserve(List<FileMetadata> pending) {
+        return fileMetadataRepository.saveAll(pending);
+    }
 
-        fileMetadataRepository.save(metadata);
+    // Step two: writes the content under the reserved key and records what was stored
+    public void store(FileMetadata pending, InputStream inputStream, long contentLength) {
+        String fileExtension = fileValidator.getFileExtension(pending.getOriginalFileName());
+        String codec = compressionPolicy.selectCodec(fileExtension, pending.getMimeType(), contentLength);
+
+        SizeLimitingInputStream limitedStream = fileValidator.limitSize(inputStream);
+        StoredBlob blob;
+        transferMetrics.uploadStarted();
+        try {
+            blob = transferMetrics.phase(TransferMetrics.UPLOAD, "storage", () -> blobService.upload(limitedStream,
+                    contentLength, pending.getMimeType(), pending.getStorageKey(), codec));
+        } finally {
+            transferMetrics.uploadFinished(limitedStream.getByteCount());
+        }
 
-        log.info("File uploaded successfully: {} (shareToken: {})", file.getOriginalFilename(), shareToken);
+        if (limitedStream.getByteCount() == 0) {
+            throw new IllegalArgumentException("File is empty");
+        }
 
-        return UploadResponse.builder()
-                .fileId(metadata.getId().toString())
-                .fileName(file.getOriginalFilename())
-                .fileSize(file.getSize())
-                .shareUrl(contextPath + "/f/" + shareToken)
-                .deleteUrl(contextPath + "/delete/" + deleteToken)
-                .expiresAt(expiryDate)
-                .maxDownloads(maxDownloads)
-                .build();
+        pending.setFileSize(limitedStream.getByteCount());
+        pending.setContentHash(blob.contentHash());
+        pending.setCompression(codec);
+        pending.setStoredSize(blob.storedSize());
     }
 
-    public FileInfoResponse getFileInfo(String shareToken) {
-        FileMetadata metadata = findFileByShareToken(shareToken);
+    // Step three: the blob references and the PENDING to ACTIVE transitions commit together. The lifetime
+    // starts now rather than when the upload began, and the rows are updated in one JDBC batch.
+    public List<UploadResponse> activate(List<FileMetadata> stored, String passwordHash) {
+        LocalDateTime now = LocalDateTime.now();
+
+        List<String> storageKeys = new TransactionTemplate(transactionManager).execute(status -> {
+            List<String> keys = new ArrayList<>(stored.size());
+            List<Object[]> rows = new ArrayList<>(stored.size());
+            for (FileMetadata file : stored) {
+                String storageKey = file.getContentHash() != null
+                        ? blobService.acquire(new StoredBlob(file.getStorageKey(), file.getContentHash(), file.getStoredSize()))
+                        : file.getStorageKey();
+                keys.add(storageKey);
+                rows.add(new Object[]{storageKey, file.getFileSize(), file.getContentHash(), file.getCompression(),
+                        file.getStoredSize(), passwordHash, now,
+                        now.plus(Duration.between(file.getUploadDate(), file.getExpiryDate())), now, file.getId()});
+            }
 
-        return FileInfoResponse.builder()
-                .fileName(metadata.getOriginalFileName())
-                .fileSize(metadata.getFileSize())
-                .mimeType(metadata.getMimeType())
-                .uploadDate(metadata.getUploadDate())
-                .expiryDate(metadata.getExpiryDate())
-                .downloadCount(metadata.getDownloadCount())
-                .maxDownloads(metadata.getMaxDownloads())
-                .isPasswordProtected(metadata.isPasswordProtected())
-                .isExpired(metadata.isExpired())
-                .build();
+            int[] updated = jdbcTemplate.batchUpdate(ACTIVATE_SQL, rows);
+            for (int count : updated) {
+                // A row the reconciler already removed means the object may be gone too
+                if (count == 0) {
+                    throw new IllegalStateException("Upload was abandoned before it completed");
+                }
+            }
+            storageStatsService.recordUploads(stored.size(),
+                    stored.stream().mapToLong(FileMetadata::getFileSize).sum());
+            return keys;
+        });
+
+        for (int i = 0; i < stored.size(); i++) {
+            FileMetadata file = stored.get(i);
+            file.setExpiryDate(now.plus(Duration.between(file.getUploadDate(), file.getExpiryDate())));
+            file.setUploadDate(now);
+            file.setStorageKey(storageKeys.get(i));
+            file.setPasswordHash(passwordHash);
+            file.setStatus(FileMetadata.Status.ACTIVE);
+            log.debug("File uploaded successfully: {} (shareToken: {})", file.getOriginalFileName(), file.getShareToken());
+        }
+
+        return stored.stream()
+                .map(this::buildUploadResponse)
+                .toList();
     }
 
-    @Transactional
-    public FileDownloadResult downloadFile(String shareToken, String password) {
-        FileMetadata metadata = findFileByShareToken(shareToken);
+    // Best effort: whatever is left behind here is removed by the reconciler once the rows go stale
+    public void discard(List<FileMetadata> pending, boolean deleteObjects) {
+        try {
+            List<String> storageKeys = fileMetadataRepository.deletePending(pending.stream()
+                    .map(FileMetadata::getId)
+                    .toList());
+            if (deleteObjects) {
+                storageService.deleteFiles(storageKeys);
+            }
+        } catch (RuntimeException e) {
+            log.warn("Error while discarding {} pending uploads, leaving them to the reconciler", pending.size(), e);
+        }
+    }
 
-        if (metadata.isExpired()) {
-            throw new FileExpiredException("File has expired and is no longer available");
+    // Checked before anything is written to storage, so a collision costs a retry instead of a failed upload;
+    // the unique constraints still guard the short window until the row is inserted
+    public FileTokens reserveTokens() {
+        for (int attempt = 1; attempt <= MAX_TOKEN_ATTEMPTS; attempt++) {
+            FileTokens tokens = new FileTokens(tokenGenerator.generateShareToken(), tokenGenerator.generateDeleteToken());
+            if (!fileMetadataRepository.existsByShareTokenOrDeleteToken(tokens.shareToken(), tokens.deleteToken())) {
+                return tokens;
+            }
+            log.warn("Generated file token already in use, retrying (attempt {})", attempt);
         }
+        throw new IllegalStateException("Could not generate unique file tokens");
+    }
 
-        if (metadata.isDownloadLimitReached()) {
-            throw new FileExpiredException("Download limit reached for this file");
+    // One existence query for the whole batch instead of one per file
+    public List<FileTokens> reserveTokenBatch(int count) {
+        for (int attempt = 1; attempt <= MAX_TOKEN_ATTEMPTS; attempt++) {
+            List<FileTokens> tokens = IntStream.range(0, count)
+                    .mapToObj(i -> new FileTokens(tokenGenerator.generateShareToken(), tokenGenerator.generateDeleteToken()))
+                    .toList();
+            if (!fileMetadataRepository.existsByShareTokenInOrDeleteTokenIn(
+                    tokens.stream().map(FileTokens::shareToken).toList(),
+                    tokens.stream().map(FileTokens::deleteToken).toList())) {
+                return tokens;
+            }
+            log.warn("Generated file token already in use, retrying (attempt {})", attempt);
         }
+        throw new IllegalStateException("Could not generate unique file tokens");
+    }
+
+    public UploadResponse getUploadResponse(UUID fileId) {
+        FileMetadata metadata = fileMetadataRepository.findById(fileId)
+                .orElseThrow(() -> new FileNotFoundException("File not found"));
+
+        return buildUploadResponse(metadata);
+    }
+
+    // Answered from the metadata cache when a download already put the file there, otherwise by a projection
+    // query, so info lookups never pull whole rows with password hashes and storage keys into the cache
+    public FileInfoResult getFileInfo(String shareToken) {
+        Optional<FileMetadata> cached = fileMetadataCache.peek(shareToken);
+        FileInfo info = cached != null
+                ? cached.filter(metadata -> !metadata.getIsDeleted())
+                        .map(FileService::toFileInfo)
+                        .orElseThrow(() -> new FileNotFoundException("File not found"))
+                : fileMetadataRepository.findInfoByShareToken(shareToken, FileMetadata.Status.ACTIVE)
+                        .orElseThrow(() -> new FileNotFoundException("File not found"));
+
+        int downloadCount = downloadCounterService.getDownloadCount(info.id(), info.downloadCount());
+        LocalDateTime now = LocalDateTime.now();
+        boolean expired = now.isAfter(info.expiryDate());
+
+        FileInfoResponse response = FileInfoResponse.builder()
+                .fileName(info.fileName())
+                .fileSize(info.fileSize())
+                .mimeType(info.mimeType())
+                .uploadDate(info.uploadDate())
+                .expiryDate(info.expiryDate())
+                .downloadCount(downloadCount)
+                .maxDownloads(info.maxDownloads())
+                .isPasswordProtected(info.passwordProtected())
+                .isExpired(expired)
+                .build();
+
+        // Every field that can change without the row being updated is part of the tag
+        String eTag = "\"" + info.updatedAt().atZone(ZoneId.systemDefault()).toInstant().toEpochMilli()
+                + "-" + downloadCount + (expired ? "-expired" : "") + "\"";
 
-        if (metadata.isPasswordProtected()) {
-            if (password == null || password.isEmpty()) {
-                throw new InvalidPasswordException("Password is required");
+        // A cached response must not claim the file is still available after it expires
+        long untilExpiry = expired ? 0 : Duration.between(now, info.expiryDate()).toSeconds();
+        return new FileInfoResult(response, eTag, Duration.ofSeconds(Math.min(infoMaxAgeSeconds, untilExpiry)));
+    }
+
+    // Deliberately not transactional: no pooled connection is held while the object is opened and streamed
+    public FileDownloadResult downloadFile(String shareToken, String password, String downloadToken, String clientIp,
+                                           String rangeHeader, String ifRange, String acceptEncoding) {
+        FileMetadata metadata = transferMetrics.phase(TransferMetrics.DOWNLOAD, "metadata", () -> {
+            FileMetadata found = findFileByShareToken(shareToken);
+
+            if (found.isExpired()) {
+                throw new FileExpiredException("File has expired and is no longer available");
             }
-            if (!passwordUtil.verifyPassword(password, metadata.getPasswordHash())) {
-                throw new InvalidPasswordException("Invalid password");
+
+            if (downloadCounterService.isLimitReached(found)) {
+                throw new FileExpiredException("Download limit reached for this file");
             }
+            return found;
+        });
+
+        // A valid download token skips BCrypt, so range requests and retries after one verification stay cheap
+        String issuedToken = transferMetrics.phase(TransferMetrics.DOWNLOAD, "password",
+                () -> passwordVerificationService.authorize(metadata, password, downloadToken, clientIp));
+
+        // Compressed objects are sent as stored when the client accepts the codec, and decoded on the fly otherwise
+        String contentEncoding = metadata.isCompressed()
+                && compressionPolicy.accepts(acceptEncoding, metadata.getCompression()) ? metadata.getCompression() : null;
+        boolean decode = metadata.isCompressed() && contentEncoding == null;
+
+        // Ranges address the decoded bytes, which a compressed object cannot seek to, so the whole file is sent
+        List<ByteRange> ranges = metadata.isCompressed()
+                ? List.of()
+                : byteRangeResolver.resolve(rangeHeader, ifRange, metadata);
+
+        // Range requests count too, so a limited file cannot be fetched without limit by always sending a Range
+        if (ByteRangeResolver.includesStart(ranges) && !downloadCounterService.tryIncrement(metadata)) {
+            throw new FileExpiredException("Download limit reached for this file");
         }
 
-        metadata.setDownloadCount(metadata.getDownloadCount() + 1);
-        fileMetadataRepository.save(metadata);
+        InputStream fileStream = null;
+        String redirectUrl = null;
+        if (ranges.isEmpty()) {
+            // Only a counted full download is redirected: a presigned URL covers the whole object whatever range
+            // was asked for, so a range request answered with one would be an uncounted full download
+            if (presignedEnabled && !decode) {
+                redirectUrl = storageService.presignedDownloadUrl(metadata.getStorageKey(),
+                        presignedResponseHeaders(metadata, contentEncoding),
+                        Duration.ofSeconds(downloadUrlExpirySeconds)).orElse(null);
+            }
+
+            if (redirectUrl == null) {
+                fileStream = storageService.downloadFile(metadata.getStorageKey());
+                if (decode) {
+                    fileStream = decompress(fileStream);
+                }
+            }
 
-        InputStream fileStream = storageService.downloadFile(metadata.getStorageKey());
+            log.debug("File downloaded: {} (shareToken: {})", metadata.getOriginalFileName(), shareToken);
+        } else if (ranges.size() == 1) {
+            ByteRange range = ranges.get(0);
+            fileStream = storageService.downloadFile(metadata.getStorageKey(), range.start(), range.length());
 
-        log.info("File downloaded: {} (shareToken: {}, downloadCount: {})",
-                metadata.getOriginalFileName(), shareToken, metadata.getDownloadCount());
+            log.debug("File range downloaded: {} (shareToken: {}, range: {}-{})",
+                    metadata.getOriginalFileName(), shareToken, range.start(), range.end());
+        }
 
         return new FileDownloadResult(
                 fileStream,
                 metadata.getOriginalFileName(),
                 metadata.getMimeType(),
-                metadata.getFileSize()
+                metadata.getFileSize(),
+                contentEncoding != null ? metadata.getStoredSize() : metadata.getFileSize(),
+                contentEncoding,
+                metadata.isCompressed(),
+                metadata.getStorageKey(),
+                metadata.getEntityTag(contentEncoding),
+                metadata.getLastModified(),
+                ranges,
+                decode ? null : storageService.localPath(metadata.getStorageKey()).orElse(null),
+                issuedToken,
+                redirectUrl
         );
     }
 
+    private Map<String, String> presignedResponseHeaders(FileMetadata metadata, String contentEncoding) {
+        Map<String, String> headers = new HashMap<>();
+        headers.put(HttpHeaders.CONTENT_TYPE, metadata.getMimeType());
+        headers.put(HttpHeaders.CONTENT_DISPOSITION, ContentDisposition.attachment()
+                .filename(metadata.getOriginalFileName(), StandardCharsets.UTF_8)
+                .build()
+                .toString());
+        if (contentEncoding != null) {
+            headers.put(HttpHeaders.CONTENT_ENCODING, contentEncoding);
+        }
+        return headers;
+    }
+
+    // The file as uploaded, decoded when it is stored compressed
+    public InputStream openContent(FileMetadata metadata) {
+        InputStream stored = storageService.downloadFile(metadata.getStorageKey());
+        return metadata.isCompressed() ? decompress(stored) : stored;
+    }
+
+    private InputStream decompress(InputStream stored) {
+        try {
+            return new GZIPInputStream(stored, 64 * 1024);
+        } catch (IOException e) {
+            IOUtils.closeQuietly(stored);
+            log.error("Error while decompressing stored file", e);
+            throw new RuntimeException("Error while decompressing stored file", e);
+        }
+    }
+
+    public InputStream openRange(FileDownloadResult result, ByteRange range) {
+        return storageService.downloadFile(result.storageKey, range.start(), range.length());
+    }
+
     @Transactional
     public void deleteFile(String deleteToken) {
         FileMetadata metadata = fileMetadataRepository.findByDeleteToken(deleteToken)
                 .orElseThrow(() -> new FileNotFoundException("File not found"));
 
-        if (metadata.getIsDeleted()) {
+        if (metadata.getStatus() != FileMetadata.Status.ACTIVE) {
+            throw new FileNotFoundException("File not found");
+        }
+        if (metadata.getIsDeleted()
+                || fileMetadataRepository.markDeleted(List.of(metadata.getId()), LocalDateTime.now()).isEmpty()) {
             throw new FileNotFoundException("File has already been deleted");
         }
+        storageStatsService.recordDeletions(1, metadata.getFileSize());
+
+        // Deduplicated content is only removed from storage once no other file references it, and only after
+        // the commit: a rolled back delete must still find its object
+        String unreferencedKey = blobService.release(metadata.getContentHash(), metadata.getStorageKey(), 1);
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                downloadCounterService.forget(List.of(metadata.getId()));
+                if (unreferencedKey == null) {
+                    return;
+                }
+                try {
+                    storageService.deleteFile(unreferencedKey);
+                } catch (RuntimeException e) {
+                    // The file is deleted either way; the caller is not told it failed
+                    log.warn("Could not remove object {} of deleted file, it is left orphaned", unreferencedKey, e);
+                }
+            }
+        });
 
-        storageService.deleteFile(metadata.getStorageKey());
-
-        metadata.setIsDeleted(true);
-        fileMetadataRepository.save(metadata);
+        fileMetadataCache.evict(metadata.getShareToken());
 
         log.info("File deleted: {} (deleteToken: {})", metadata.getOriginalFileName(), deleteToken);
     }
 
+    private UploadResponse buildUploadResponse(FileMetadata metadata) {
+        return UploadResponse.builder()
+                .fileId(metadata.getId().toString())
+                .fileName(metadata.getOriginalFileName())
+                .fileSize(metadata.getFileSize())
+                .shareUrl(contextPath + "/f/" + metadata.getShareToken())
+                .deleteUrl(contextPath + "/delete/" + metadata.getDeleteToken())
+                .expiresAt(metadata.getExpiryDate())
+                .maxDownloads(metadata.getMaxDownloads())
+                .build();
+    }
+
+    private static FileInfo toFileInfo(FileMetadata metadata) {
+        return new FileInfo(metadata.getId(), metadata.getOriginalFileName(), metadata.getFileSize(),
+                metadata.getMimeType(), metadata.getUploadDate(), metadata.getExpiryDate(),
+                metadata.getDownloadCount(), metadata.getMaxDownloads(), metadata.isPasswordProtected(),
+                metadata.getUpdatedAt());
+    }
+
     private FileMetadata findFileByShareToken(String shareToken) {
-        FileMetadata metadata = fileMetadataRepository.findByShareToken(shareToken)
+        FileMetadata metadata = fileMetadataCache.findByShareToken(shareToken)
                 .orElseThrow(() -> new FileNotFoundException("File not found"));
 
         if (metadata.getIsDeleted()) {
@@ -172,17 +516,49 @@ public class FileService {
         return metadata;
     }
 
+    public record FileInfoResult(FileInfoResponse info, String eTag, Duration maxAge) {
+    }
+
     public static class FileDownloadResult {
         public final InputStream inputStream;
         public final String fileName;
         public final String mimeType;
         public final Long fileSize;
-
-        public FileDownloadResult(InputStream inputStream, String fileName, String mimeType, Long fileSize) {
+        // Bytes sent for a full response, which is the stored size when the encoded form is sent
+        public final Long contentLength;
+        public final String contentEncoding;
+        public final boolean compressed;
+        public final String storageKey;
+        public final String eTag;
+        public final Instant lastModified;
+        public final List<ByteRange> ranges;
+        public final Path localPath;
+        public final String downloadToken;
+        // Set when the client is sent to the object store instead of being streamed the file
+        public final String redirectUrl;
+
+        public FileDownloadResult(InputStream inputStream, String fileName, String mimeType, Long fileSize,
+                                  Long contentLength, String contentEncoding, boolean compressed,
+                                  String storageKey, String eTag, Instant lastModified, List<ByteRange> ranges,
+                                  Path localPath, String downloadToken, String redirectUrl) {
             this.inputStream = inputStream;
             this.fileName = fileName;
             this.mimeType = mimeType;
             this.fileSize = fileSize;
+            this.contentLength = contentLength;
+            this.contentEncoding = contentEncoding;
+            this.compressed = compressed;
+            this.storageKey = storageKey;
+            this.eTag = eTag;
+            this.lastModified = lastModified;
+            this.ranges = ranges;
+            this.localPath = localPath;
+            this.downloadToken = downloadToken;
+            this.redirectUrl = redirectUrl;
+        }
+
+        public boolean isPartial() {
+            return !ranges.isEmpty();
         }
     }
 }
@@ -0,0 +1,238 @@
+package com.filestore.service;
+
+import com.filestore.exception.FileSizeLimitExceededException;
+import com.filestore.util.ByteBufferInputStream;
+import com.filestore.util.SizeLimitingInputStream;
+import com.github.benmanes.caffeine.cache.AsyncCache;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.RemovalCause;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.io.file.PathUtils;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class HotObjectCache {
+
+    // Marks objects too large to cache so they are not fetched again on every request
+    private static final int NEVER_ADMIT = Integer.MIN_VALUE;
+
+    private final StorageBackend storageBackend;
+    private final MeterRegistry meterRegistry;
+
+    @Value("${filestore.cache.objects.enabled}")
+    private boolean enabled;
+
+    @Value("${filestore.cache.objects.dir}")
+    private String cacheDirPath;
+
+    @Value("${filestore.cache.objects.max-size-bytes}")
+    private Long maxSizeBytes;
+
+    @Value("${filestore.cache.objects.max-object-size-bytes}")
+    private Long maxObjectSizeBytes;
+
+    @Value("${filestore.cache.objects.off-heap-threshold-bytes}")
+    private Integer offHeapThresholdBytes;
+
+    @Value("${filestore.cache.objects.admission-threshold}")
+    private Integer admissionThreshold;
+
+    @Value("${filestore.cache.objects.idle-ttl-seconds}")
+    private Long idleTtlSeconds;
+
+    private Path cacheDir;
+    private AsyncCache<String, CachedObject> objects;
+    private Cache<String, AtomicInteger> requestCounts;
+    private ExecutorService loadExecutor;
+    private Counter hits;
+    private Counter misses;
+    private Counter bytesServed;
+
+    @PostConstruct
+    public void init() {
+        if (!enabled) {
+            return;
+        }
+
+        // A cached object is one buffer, which ByteBuffer and memory mapping both limit to int positions
+        if (maxObjectSizeBytes > Integer.MAX_VALUE) {
+            throw new IllegalStateException(String.format(
+                    "filestore.cache.objects.max-object-size-bytes must be at most %d, got %d",
+                    Integer.MAX_VALUE, maxObjectSizeBytes));
+        }
+
+        try {
+            // Cached files do not survive a restart, the cache is rebuilt from storage on demand
+            cacheDir = Path.of(cacheDirPath).toAbsolutePath().normalize();
+            if (Files.exists(cacheDir)) {
+                PathUtils.cleanDirectory(cacheDir);
+            }
+            Files.createDirectories(cacheDir);
+        } catch (IOException e) {
+            log.error("Error while initializing hot object cache", e);
+            throw new RuntimeException("Failed to initialize hot object cache", e);
+        }
+
+        // Loads block on storage I/O, which must not run on the common pool Caffeine uses by default
+        loadExecutor = Executors.newVirtualThreadPerTaskExecutor();
+
+        // Weighed in KiB so the total stays within Caffeine's int weights; eviction is W-TinyLFU by bytes
+        objects = Caffeine.newBuilder()
+                .maximumWeight(maxSizeBytes / 1024)
+                .weigher((String key, CachedObject object) -> (int) Math.min(Integer.MAX_VALUE, object.size() / 1024 + 1))
+                .expireAfterAccess(Duration.ofSeconds(idleTtlSeconds))
+                .removalListener((String key, CachedObject object, RemovalCause cause) -> {
+                    if (object != null) {
+                        object.release();
+                    }
+                })
+                .buildAsync();
+
+        requestCounts = Caffeine.newBuilder()
+                .maximumSize(100_000)
+                .expireAfterWrite(Duration.ofSeconds(idleTtlSeconds))
+                .build();
+
+        hits = meterRegistry.counter("filestore.cache.objects.requests", "result", "hit");
+        misses = meterRegistry.counter("filestore.cache.objects.requests", "result", "miss");
+        bytesServed = meterRegistry.counter("filestore.cache.objects.bytes.served");
+        Gauge.builder("filestore.cache.objects.size", objects, cache -> cache.synchronous().policy().eviction()
+                        .map(eviction -> eviction.weightedSize().orElse(0L))
+                        .orElse(0L) * 1024d)
+                .baseUnit("bytes")
+                .register(meterRegistry);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (loadExecutor != null) {
+            loadExecutor.shutdownNow();
+        }
+    }
+
+    // Returns null when the object is not cached yet, in which case the caller streams it from storage
+    public InputStream open(String storageKey, long offset, long length) {
+        if (!enabled) {
+            return null;
+        }
+
+        CompletableFuture<CachedObject> future = objects.getIfPresent(storageKey);
+        if (future == null) {
+            // The copy is filled in the background once the object is requested often enough; this request and
+            // any arriving before the copy is complete stream from storage, so none waits for the whole object
+            if (admit(storageKey)) {
+                objects.get(storageKey, (key, executor) -> CompletableFuture.supplyAsync(() -> load(key), loadExecutor));
+            }
+            misses.increment();
+            return null;
+        }
+
+        if (!future.isDone()) {
+            misses.increment();
+            return null;
+        }
+
+        CachedObject object;
+        try {
+            object = future.join();
+        } catch (CompletionException e) {
+            // Failed loads are dropped from the cache, so a later request tries again
+            log.debug("Error while loading object {} into hot object cache", storageKey, e.getCause());
+            misses.increment();
+            return null;
+        }
+        hits.increment();
+
+        long end = length < 0 ? object.size() : Math.min(object.size(), offset + length);
+        ByteBuffer slice = object.buffer().slice((int) offset, (int) (end - offset));
+        bytesServed.increment(slice.remaining());
+        return new ByteBufferInputStream(slice);
+    }
+
+    public void invalidate(String storageKey) {
+        if (enabled) {
+            objects.synchronous().invalidate(storageKey);
+            requestCounts.invalidate(storageKey);
+        }
+    }
+
+    private boolean admit(String storageKey) {
+        AtomicInteger count = requestCounts.get(storageKey, key -> new AtomicInteger());
+        return count.incrementAndGet() >= admissionThreshold;
+    }
+
+    private CachedObject load(String storageKey) {
+        try (InputStream in = new SizeLimitingInputStream(storageBackend.downloadFile(storageKey), maxObjectSizeBytes)) {
+            // Small objects go to direct buffers, the rest to a file on local disk that is memory-mapped
+            byte[] head = in.readNBytes(offHeapThresholdBytes + 1);
+            if (head.length <= offHeapThresholdBytes) {
+                ByteBuffer buffer = ByteBuffer.allocateDirect(head.length).put(head).flip();
+                return new CachedObject(buffer.asReadOnlyBuffer(), null);
+            }
+
+            Path file = Files.createTempFile(cacheDir, "object-", ".cache");
+            try {
+                try (OutputStream out = Files.newOutputStream(file)) {
+                    out.write(head);
+                    in.transferTo(out);
+                }
+                try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+                    // The mapping stays valid after the channel is closed, and after the file is deleted on eviction
+                    return new CachedObject(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()), file);
+                }
+            } catch (IOException | RuntimeException e) {
+                Files.deleteIfExists(file);
+                throw e;
+            }
+        } catch (FileSizeLimitExceededException e) {
+            requestCounts.put(storageKey, new AtomicInteger(NEVER_ADMIT));
+            throw e;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private record CachedObject(ByteBuffer buffer, Path file) {
+
+        long size() {
+            return buffer.capacity();
+        }
+
+        // Buffers are released by the GC once in-flight downloads holding a slice are done with them
+        void release() {
+            if (file != null) {
+                try {
+                    Files.deleteIfExists(file);
+                } catch (IOException e) {
+                    log.warn("Error while deleting cached object file {}", file, e);
+                }
+            }
+        }
+    }
+}
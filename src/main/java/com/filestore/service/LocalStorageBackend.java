@@ -0,0 +1,206 @@
+package com.filestore.service;
+
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.io.input.BoundedInputStream;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.DirectoryNotEmptyException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.OptionalLong;
+import java.util.UUID;
+
+@Service
+@ConditionalOnProperty(name = "filestore.storage.type", havingValue = "local")
+@Slf4j
+public class LocalStorageBackend implements StorageBackend {
+
+    @Value("${filestore.storage.local.root-dir}")
+    private String rootDir;
+
+    private Path root;
+
+    @PostConstruct
+    public void init() {
+        try {
+            root = Path.of(rootDir).toAbsolutePath().normalize();
+            Files.createDirectories(root);
+
+            log.info("Local storage root {}", root);
+        } catch (IOException e) {
+            log.error("Error while initializing local storage", e);
+            throw new RuntimeException("Failed to initialize storage service", e);
+        }
+    }
+
+    @Override
+    public String uploadStream(InputStream inputStream, long size, String contentType, String storageKey) {
+        Path target = resolve(storageKey);
+        Path tempFile = target.resolveSibling("." + target.getFileName() + "." + UUID.randomUUID() + ".tmp");
+
+        try {
+            Files.createDirectories(target.getParent());
+
+            long written;
+            try (ReadableByteChannel source = Channels.newChannel(inputStream);
+                 FileChannel out = FileChannel.open(tempFile, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE)) {
+                written = out.transferFrom(source, 0, Long.MAX_VALUE);
+            }
+
+            if (size >= 0 && written != size) {
+                throw new IOException(String.format("Expected %d bytes but received %d", size, written));
+            }
+
+            // Readers only ever see complete objects, and re-uploading a key replaces it atomically
+            Files.move(tempFile, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+
+            log.debug("Uploaded file {}", storageKey);
+            return storageKey;
+
+        } catch (IOException | RuntimeException e) {
+            deleteQuietly(tempFile);
+            log.error("Error while uploading file to local storage", e);
+            throw new RuntimeException("Error while uploading file to local storage", e);
+        }
+    }
+
+    @Override
+    public String composeFile(List<String> sourceKeys, String storageKey, String contentType) {
+        Path target = resolve(storageKey);
+        Path tempFile = target.resolveSibling("." + target.getFileName() + "." + UUID.randomUUID() + ".tmp");
+
+        try {
+            Files.createDirectories(target.getParent());
+
+            try (FileChannel out = FileChannel.open(tempFile, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE)) {
+                for (String sourceKey : sourceKeys) {
+                    try (FileChannel in = FileChannel.open(resolve(sourceKey), StandardOpenOption.READ)) {
+                        // File to file transfers stay in the kernel (copy_file_range on Linux)
+                        long position = 0;
+                        long size = in.size();
+                        while (position < size) {
+                            position += in.transferTo(position, size - position, out);
+                        }
+                    }
+                }
+            }
+
+            Files.move(tempFile, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+
+            log.debug("Composed file {} from {} parts", storageKey, sourceKeys.size());
+            return storageKey;
+
+        } catch (IOException | RuntimeException e) {
+            deleteQuietly(tempFile);
+            log.error("Error while composing file in local storage", e);
+            throw new RuntimeException("Error while composing file in local storage", e);
+        }
+    }
+
+    @Override
+    public InputStream downloadFile(String storageKey) {
+        try {
+            return Files.newInputStream(resolve(storageKey));
+        } catch (IOException e) {
+            log.info("Error while downloading file from local storage", e);
+            throw new RuntimeException("Error while downloading file from local storage", e);
+        }
+    }
+
+    @Override
+    public InputStream downloadFile(String storageKey, long offset, long length) {
+        try {
+            FileChannel channel = FileChannel.open(resolve(storageKey), StandardOpenOption.READ);
+            channel.position(offset);
+            return new BoundedInputStream(Channels.newInputStream(channel), length);
+        } catch (IOException e) {
+            log.info("Error while downloading file range from local storage", e);
+            throw new RuntimeException("Error while downloading file range from local storage", e);
+        }
+    }
+
+    @Override
+    public void deleteFile(String storageKey) {
+        try {
+            Path file = resolve(storageKey);
+            Files.deleteIfExists(file);
+            deleteEmptyParent(file);
+        } catch (IOException e) {
+            log.info("Error while deleting file from local storage", e);
+            throw new RuntimeException("Error while deleting file from local storage", e);
+        }
+    }
+
+    @Override
+    public List<String> deleteFiles(List<String> storageKeys) {
+        List<String> failedKeys = new ArrayList<>();
+        for (String storageKey : storageKeys) {
+            try {
+                deleteFile(storageKey);
+            } catch (RuntimeException e) {
+                log.warn("Error while deleting file {} from local storage", storageKey);
+                failedKeys.add(storageKey);
+            }
+        }
+        return failedKeys;
+    }
+
+    @Override
+    public OptionalLong objectSize(String storageKey) {
+        try {
+            Path file = resolve(storageKey);
+            return Files.isRegularFile(file) ? OptionalLong.of(Files.size(file)) : OptionalLong.empty();
+        } catch (IOException e) {
+            log.info("Error while reading file size from local storage", e);
+            throw new RuntimeException("Error while reading file size from local storage", e);
+        }
+    }
+
+    @Override
+    public Optional<Path> localPath(String storageKey) {
+        return Optional.of(resolve(storageKey));
+    }
+
+    private Path resolve(String storageKey) {
+        Path path = root.resolve(storageKey).normalize();
+        if (!path.startsWith(root) || path.equals(root)) {
+            throw new IllegalArgumentException("Invalid storage key: " + storageKey);
+        }
+        return path;
+    }
+
+    private void deleteEmptyParent(Path file) throws IOException {
+        // Chunk uploads get a directory per session, which would otherwise be left behind empty;
+        // top-level directories such as uploads/ are kept so concurrent writers never lose them
+        Path parent = file.getParent();
+        if (parent.equals(root) || parent.getParent().equals(root)) {
+            return;
+        }
+        try {
+            Files.deleteIfExists(parent);
+        } catch (DirectoryNotEmptyException e) {
+            // Still in use by other objects
+        }
+    }
+
+    private void deleteQuietly(Path path) {
+        try {
+            Files.deleteIfExists(path);
+        } catch (IOException e) {
+            log.warn("Error while deleting temporary file {}", path, e);
+        }
+    }
+}
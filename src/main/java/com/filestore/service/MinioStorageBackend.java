@@ -0,0 +1,299 @@
+package com.filestore.service;
+
+import io.minio.*;
+import io.minio.errors.*;
+import io.minio.http.HttpUtils;
+import io.minio.http.Method;
+import io.minio.messages.DeleteError;
+import io.minio.messages.DeleteObject;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import okhttp3.Dispatcher;
+import okhttp3.OkHttpClient;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+
+import java.io.InputStream;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.OptionalLong;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+@Service
+@ConditionalOnProperty(name = "filestore.storage.type", havingValue = "minio", matchIfMissing = true)
+@Slf4j
+public class MinioStorageBackend implements StorageBackend {
+
+    // Part size used when the object length is not known up front; MinIO holds one part in memory at a time
+    private static final long STREAM_PART_SIZE = 10L * 1024 * 1024;
+
+    // Same connect/read/write timeouts the MinIO client uses for its default HTTP client
+    private static final long HTTP_TIMEOUT_MILLIS = TimeUnit.MINUTES.toMillis(5);
+
+    private static final Set<String> NOT_FOUND_CODES = Set.of("NoSuchKey", "NoSuchObject");
+
+    @Value("${filestore.storage.minio.endpoint}")
+    private String minioEndpoint;
+
+    @Value("${filestore.storage.minio.access-key}")
+    private String accessKey;
+
+    @Value("${filestore.storage.minio.secret-key}")
+    private String secretKey;
+
+    @Value("${filestore.storage.minio.bucket-name}")
+    private String bucketName;
+
+    @Value("${filestore.storage.minio.max-concurrent-requests}")
+    private Integer maxConcurrentRequests;
+
+    // Host clients use to reach MinIO, which presigned URLs are signed for; defaults to the endpoint above
+    @Value("${filestore.storage.minio.public-endpoint:}")
+    private String publicEndpoint;
+
+    @Value("${filestore.storage.minio.region}")
+    private String region;
+
+    @Value("${spring.threads.virtual.enabled:false}")
+    private boolean virtualThreads;
+
+    private MinioClient minioClient;
+    private MinioClient presignClient;
+
+    @PostConstruct
+    public void init() {
+        try {
+            minioClient = MinioClient.builder()
+                    .endpoint(minioEndpoint)
+                    .credentials(accessKey, secretKey)
+                    .httpClient(createHttpClient())
+                    .build();
+
+            // Signing is local; a fixed region keeps the client from looking it up on the public endpoint
+            presignClient = MinioClient.builder()
+                    .endpoint(publicEndpoint == null || publicEndpoint.isBlank() ? minioEndpoint : publicEndpoint)
+                    .credentials(accessKey, secretKey)
+                    .region(region)
+                    .build();
+
+            boolean bucketExists = minioClient.bucketExists(
+                    BucketExistsArgs.builder().bucket(bucketName).build()
+            );
+
+            if (!bucketExists) {
+                minioClient.makeBucket(
+                        MakeBucketArgs.builder().bucket(bucketName).build()
+                );
+
+                log.info("Created MinIO bucket {}", bucketName);
+            } else {
+                log.info("MinIO bucket already exists {}", bucketName);
+            }
+
+        } catch (Exception e) {
+            log.error("Error while initializing MinIO service", e);
+            throw new RuntimeException("Failed to initialize storage service" ,e);
+        }
+    }
+
+    private OkHttpClient createHttpClient() {
+        // MinIO runs every call through OkHttp's async dispatcher, which by default allows only
+        // 5 in-flight requests per host and would cap concurrent transfers regardless of request threads
+        Dispatcher dispatcher = virtualThreads
+                ? new Dispatcher(Executors.newVirtualThreadPerTaskExecutor())
+                : new Dispatcher();
+        dispatcher.setMaxRequests(maxConcurrentRequests);
+        dispatcher.setMaxRequestsPerHost(maxConcurrentRequests);
+
+        return HttpUtils.newDefaultHttpClient(HTTP_TIMEOUT_MILLIS, HTTP_TIMEOUT_MILLIS, HTTP_TIMEOUT_MILLIS)
+                .newBuilder()
+                .dispatcher(dispatcher)
+                .build();
+    }
+
+    @Override
+    public String uploadStream(InputStream inputStream, long size, String contentType, String storageKey) {
+        try {
+            minioClient.putObject(
+                    PutObjectArgs.builder()
+                            .bucket(bucketName)
+                            .object(storageKey)
+                            .stream(inputStream, size, size < 0 ? STREAM_PART_SIZE : -1)
+                            .contentType(contentType)
+                            .build()
+            );
+
+            log.debug("Uploaded file {}", storageKey);
+            return storageKey;
+
+        } catch (Exception e) {
+            log.error("Error while uploading file to MinIO service", e);
+            throw new RuntimeException("Error while uploading file to MinIO service" ,e);
+        }
+    }
+
+    @Override
+    public String composeFile(List<String> sourceKeys, String storageKey, String contentType) {
+        try {
+            List<ComposeSource> sources = sourceKeys.stream()
+                    .map(sourceKey -> ComposeSource.builder()
+                            .bucket(bucketName)
+                            .object(sourceKey)
+                            .build())
+                    .toList();
+
+            minioClient.composeObject(
+                    ComposeObjectArgs.builder()
+                            .bucket(bucketName)
+                            .object(storageKey)
+                            .sources(sources)
+                            .headers(Map.of("Content-Type", contentType))
+                            .build()
+            );
+
+            log.debug("Composed file {} from {} parts", storageKey, sourceKeys.size());
+            return storageKey;
+
+        } catch (Exception e) {
+            log.error("Error while composing file in MinIO service", e);
+            throw new RuntimeException("Error while composing file in MinIO service" ,e);
+        }
+    }
+
+    @Override
+    public InputStream downloadFile(String storageKey) {
+        try {
+            return minioClient.getObject(
+                    GetObjectArgs.builder()
+                            .bucket(bucketName)
+                            .object(storageKey)
+                            .build()
+            );
+        } catch (Exception e) {
+            log.info("Error while downloading file from MinIO service", e);
+            throw new RuntimeException("Error while downloading file from MinIO service" ,e);
+        }
+    }
+
+    @Override
+    public InputStream downloadFile(String storageKey, long offset, long length) {
+        try {
+            return minioClient.getObject(
+                    GetObjectArgs.builder()
+                            .bucket(bucketName)
+                            .object(storageKey)
+                            .offset(offset)
+                            .length(length)
+                            .build()
+            );
+        } catch (Exception e) {
+            log.info("Error while downloading file range from MinIO service", e);
+            throw new RuntimeException("Error while downloading file range from MinIO service" ,e);
+        }
+    }
+
+    @Override
+    public void deleteFile(String storageKey) {
+        try {
+            minioClient.removeObject(
+                    RemoveObjectArgs.builder()
+                            .bucket(bucketName)
+                            .object(storageKey)
+                            .build()
+            );
+        } catch (Exception e) {
+            log.info("Error while deleting file from MinIO service", e);
+            throw new RuntimeException("Error while deleting file from MinIO service" ,e);
+        }
+    }
+
+    @Override
+    public List<String> deleteFiles(List<String> storageKeys) {
+        if (storageKeys.isEmpty()) {
+            return List.of();
+        }
+
+        try {
+            List<DeleteObject> objects = storageKeys.stream()
+                    .map(DeleteObject::new)
+                    .toList();
+
+            Iterable<Result<DeleteError>> results = minioClient.removeObjects(
+                    RemoveObjectsArgs.builder()
+                            .bucket(bucketName)
+                            .objects(objects)
+                            .build()
+            );
+
+            List<String> failedKeys = new ArrayList<>();
+            for (Result<DeleteError> result : results) {
+                DeleteError error = result.get();
+                log.warn("Error while deleting file {} from MinIO service: {}", error.objectName(), error.message());
+                failedKeys.add(error.objectName());
+            }
+            return failedKeys;
+        } catch (Exception e) {
+            log.info("Error while deleting files from MinIO service", e);
+            throw new RuntimeException("Error while deleting files from MinIO service" ,e);
+        }
+    }
+
+    @Override
+    public OptionalLong objectSize(String storageKey) {
+        try {
+            StatObjectResponse stat = minioClient.statObject(
+                    StatObjectArgs.builder()
+                            .bucket(bucketName)
+                            .object(storageKey)
+                            .build()
+            );
+            return OptionalLong.of(stat.size());
+        } catch (ErrorResponseException e) {
+            if (NOT_FOUND_CODES.contains(e.errorResponse().code())) {
+                return OptionalLong.empty();
+            }
+            log.info("Error while reading file metadata from MinIO service", e);
+            throw new RuntimeException("Error while reading file metadata from MinIO service", e);
+        } catch (Exception e) {
+            log.info("Error while reading file metadata from MinIO service", e);
+            throw new RuntimeException("Error while reading file metadata from MinIO service", e);
+        }
+    }
+
+    @Override
+    public Optional<String> presignedUploadUrl(String storageKey, Duration expiry) {
+        return Optional.of(presign(Method.PUT, storageKey, Map.of(), expiry));
+    }
+
+    @Override
+    public Optional<String> presignedDownloadUrl(String storageKey, Map<String, String> responseHeaders,
+                                                 Duration expiry) {
+        Map<String, String> queryParams = new HashMap<>();
+        responseHeaders.forEach((name, value) -> queryParams.put("response-" + name.toLowerCase(), value));
+        return Optional.of(presign(Method.GET, storageKey, queryParams, expiry));
+    }
+
+    private String presign(Method method, String storageKey, Map<String, String> queryParams, Duration expiry) {
+        try {
+            return presignClient.getPresignedObjectUrl(
+                    GetPresignedObjectUrlArgs.builder()
+                            .method(method)
+                            .bucket(bucketName)
+                            .object(storageKey)
+                            .expiry((int) expiry.toSeconds(), TimeUnit.SECONDS)
+                            .extraQueryParams(queryParams)
+                            .build()
+            );
+        } catch (Exception e) {
+            log.info("Error while presigning MinIO URL", e);
+            throw new RuntimeException("Error while presigning MinIO URL", e);
+        }
+    }
+}
@@ -0,0 +1,278 @@
+package com.filestore.service;
+
+import com.filestore.exception.InvalidPasswordException;
+import com.filestore.exception.TooManyRequestsException;
+import com.filestore.model.entity.FileMetadata;
+import com.filestore.util.PasswordUtil;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.stereotype.Service;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Base64;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class PasswordVerificationService {
+
+    private static final String ATTEMPTS_KEY_PREFIX = "filestore:password:failures:";
+    private static final String LINK_ATTEMPTS_KEY_PREFIX = "filestore:password:link-failures:";
+    private static final Base64.Encoder BASE64_ENCODER = Base64.getUrlEncoder().withoutPadding();
+    private static final Base64.Decoder BASE64_DECODER = Base64.getUrlDecoder();
+
+    // Reserves an attempt against both the client's and the link's budget before the password is checked, so
+    // parallel guesses cannot all pass the check before any of them is counted. Returns 0 when either budget
+    // is spent, leaving the counts as they were.
+    private static final RedisScript<Long> RESERVE_ATTEMPT_SCRIPT = RedisScript.of("""
+            local client = redis.call('INCR', KEYS[1])
+            if client == 1 then
+                redis.call('EXPIRE', KEYS[1], ARGV[3])
+            end
+            local subject = redis.call('INCR', KEYS[2])
+            if subject == 1 then
+                redis.call('EXPIRE', KEYS[2], ARGV[3])
+            end
+            if client > tonumber(ARGV[1]) or subject > tonumber(ARGV[2]) then
+                redis.call('DECR', KEYS[1])
+                redis.call('DECR', KEYS[2])
+                return 0
+            end
+            return 1
+            """, Long.class);
+
+    // Gives back a reservation that did not turn out to be a failed guess; keys that expired meanwhile stay gone
+    private static final RedisScript<Long> RELEASE_ATTEMPT_SCRIPT = RedisScript.of("""
+            for _, key in ipairs(KEYS) do
+                local count = tonumber(redis.call('GET', key))
+                if count and count > 0 then
+                    redis.call('DECR', key)
+                end
+            end
+            return 1
+            """, Long.class);
+
+    private final PasswordUtil passwordUtil;
+    private final StringRedisTemplate redisTemplate;
+    private final MeterRegistry meterRegistry;
+
+    @Value("${filestore.password.verify-threads}")
+    private Integer verifyThreads;
+
+    @Value("${filestore.password.verify-queue-capacity}")
+    private Integer verifyQueueCapacity;
+
+    @Value("${filestore.password.verify-timeout-ms}")
+    private Long verifyTimeoutMs;
+
+    @Value("${filestore.password.session-ttl-seconds}")
+    private Long sessionTtlSeconds;
+
+    @Value("${filestore.password.session-secret}")
+    private String sessionSecret;
+
+    @Value("${filestore.password.max-failed-attempts}")
+    private Integer maxFailedAttempts;
+
+    @Value("${filestore.password.max-failed-attempts-per-link}")
+    private Integer maxFailedAttemptsPerLink;
+
+    @Value("${filestore.password.failed-attempts-window-seconds}")
+    private Long failedAttemptsWindowSeconds;
+
+    private ThreadPoolExecutor verifyExecutor;
+    private SecretKeySpec sessionKey;
+    private Timer verifyTimer;
+    private Timer waitTimer;
+    private Counter rejected;
+    private Counter throttled;
+
+    @PostConstruct
+    public void init() {
+        int threads = verifyThreads > 0 ? verifyThreads : Runtime.getRuntime().availableProcessors();
+
+        // BCrypt is pure CPU: a small fixed pool with a bounded queue keeps it from starving request threads
+        verifyExecutor = new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(verifyQueueCapacity),
+                Thread.ofPlatform().name("password-verify-", 0).daemon(true).factory(),
+                new ThreadPoolExecutor.AbortPolicy());
+
+        byte[] secret;
+        if (sessionSecret == null || sessionSecret.isBlank()) {
+            log.warn("filestore.password.session-secret is not set, download tokens are only valid on this node");
+            secret = new byte[32];
+            new SecureRandom().nextBytes(secret);
+        } else {
+            secret = sessionSecret.getBytes(StandardCharsets.UTF_8);
+        }
+        sessionKey = new SecretKeySpec(secret, "HmacSHA256");
+
+        verifyTimer = Timer.builder("filestore.password.verify.duration").register(meterRegistry);
+        waitTimer = Timer.builder("filestore.password.verify.wait").register(meterRegistry);
+        rejected = meterRegistry.counter("filestore.password.verify.rejected");
+        throttled = meterRegistry.counter("filestore.password.verify.throttled");
+        Gauge.builder("filestore.password.verify.queue", verifyExecutor, executor -> executor.getQueue().size())
+                .register(meterRegistry);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        verifyExecutor.shutdownNow();
+    }
+
+    // Returns a download token when the password was verified, or null when the file is open or the token was valid
+    public String authorize(FileMetadata metadata, String password, String downloadToken, String clientIp) {
+        return authorize(metadata.getShareToken(), metadata.getPasswordHash(), password, downloadToken, clientIp);
+    }
+
+    // The subject is what download tokens and failed attempts are tied to, so it must be unique across share links
+    public String authorize(String subject, String passwordHash, String password, String downloadToken,
+                            String clientIp) {
+        if (passwordHash == null || passwordHash.isEmpty() || isValidToken(subject, downloadToken)) {
+            return null;
+        }
+
+        if (password == null || password.isEmpty()) {
+            throw new InvalidPasswordException("Password is required");
+        }
+
+        // Counted per client and per link: the per-link budget bounds guessing however many addresses are used
+        List<String> attemptKeys = List.of(
+                ATTEMPTS_KEY_PREFIX + subject + ":" + clientIp,
+                LINK_ATTEMPTS_KEY_PREFIX + subject);
+        if (!reserveAttempt(attemptKeys)) {
+            throttled.increment();
+            throw new TooManyRequestsException("Too many failed password attempts", failedAttemptsWindowSeconds);
+        }
+
+        // Only a wrong password keeps the reservation; a correct one or a verification that never ran gives it back
+        boolean verified;
+        try {
+            verified = verify(password, passwordHash);
+        } catch (RuntimeException e) {
+            releaseAttempt(attemptKeys);
+            throw e;
+        }
+        if (!verified) {
+            throw new InvalidPasswordException("Invalid password");
+        }
+        releaseAttempt(attemptKeys);
+
+        return issueToken(subject);
+    }
+
+    public Duration getSessionTtl() {
+        return Duration.ofSeconds(sessionTtlSeconds);
+    }
+
+    private boolean verify(String password, String passwordHash) {
+        long submittedNanos = System.nanoTime();
+
+        Future<Boolean> result;
+        try {
+            result = verifyExecutor.submit(() -> {
+                waitTimer.record(System.nanoTime() - submittedNanos, TimeUnit.NANOSECONDS);
+                return verifyTimer.recordCallable(() -> passwordUtil.verifyPassword(password, passwordHash));
+            });
+        } catch (RejectedExecutionException e) {
+            rejected.increment();
+            throw new TooManyRequestsException("Too many password verifications in progress, try again shortly", 1);
+        }
+
+        try {
+            return result.get(verifyTimeoutMs, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            result.cancel(true);
+            rejected.increment();
+            throw new TooManyRequestsException("Too many password verifications in progress, try again shortly", 1);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted while verifying password", e);
+        } catch (ExecutionException e) {
+            throw new RuntimeException("Error while verifying password", e.getCause());
+        }
+    }
+
+    private boolean reserveAttempt(List<String> attemptKeys) {
+        try {
+            Long reserved = redisTemplate.execute(RESERVE_ATTEMPT_SCRIPT, attemptKeys,
+                    String.valueOf(maxFailedAttempts), String.valueOf(maxFailedAttemptsPerLink),
+                    String.valueOf(failedAttemptsWindowSeconds));
+            return reserved == null || reserved != 0;
+        } catch (RuntimeException e) {
+            // Without Redis the attempts are not tracked; the bounded verification pool still caps the guess rate
+            log.debug("Error while reserving a password attempt in Redis", e);
+            return true;
+        }
+    }
+
+    private void releaseAttempt(List<String> attemptKeys) {
+        try {
+            redisTemplate.execute(RELEASE_ATTEMPT_SCRIPT, attemptKeys);
+        } catch (RuntimeException e) {
+            log.debug("Error while releasing a password attempt in Redis", e);
+        }
+    }
+
+    // Tokens are stateless: <expiry epoch seconds>.<HMAC of subject and expiry>
+    String issueToken(String subject) {
+        long expiresAt = Instant.now().plusSeconds(sessionTtlSeconds).getEpochSecond();
+        return expiresAt + "." + BASE64_ENCODER.encodeToString(sign(subject, expiresAt));
+    }
+
+    boolean isValidToken(String subject, String token) {
+        if (token == null || token.isEmpty()) {
+            return false;
+        }
+
+        int separator = token.indexOf('.');
+        if (separator <= 0) {
+            return false;
+        }
+
+        try {
+            long expiresAt = Long.parseLong(token.substring(0, separator));
+            if (Instant.now().getEpochSecond() > expiresAt) {
+                return false;
+            }
+            byte[] signature = BASE64_DECODER.decode(token.substring(separator + 1));
+            return MessageDigest.isEqual(signature, sign(subject, expiresAt));
+        } catch (IllegalArgumentException e) {
+            return false;
+        }
+    }
+
+    private byte[] sign(String subject, long expiresAt) {
+        try {
+            Mac mac = Mac.getInstance("HmacSHA256");
+            mac.init(sessionKey);
+            return mac.doFinal((subject + ":" + expiresAt).getBytes(StandardCharsets.UTF_8));
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("HmacSHA256 is not available", e);
+        }
+    }
+}
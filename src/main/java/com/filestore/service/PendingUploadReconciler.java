@@ -0,0 +1,82 @@
+package com.filestore.service;
+
+import com.filestore.repository.FileMetadataRepository;
+import com.filestore.util.RedisLock;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+
+// Removes uploads that reserved a row but never completed, together with whatever they wrote to storage
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class PendingUploadReconciler {
+
+    private static final String LOCK_NAME = "pending-upload-reconciler";
+    private static final UUID FIRST_ID = new UUID(0, 0);
+
+    private final FileMetadataRepository fileMetadataRepository;
+    private final StorageService storageService;
+    private final RedisLock redisLock;
+
+    @Value("${filestore.reconciler.batch-size}")
+    private Integer batchSize;
+
+    // Longer than any upload may take, so only uploads whose node died or gave up are collected
+    @Value("${filestore.reconciler.pending-ttl-seconds}")
+    private Long pendingTtlSeconds;
+
+    @Value("${filestore.reconciler.lock-ttl-seconds}")
+    private Long lockTtlSeconds;
+
+    public void reconcilePendingUploads() {
+        String lockToken = redisLock.tryAcquire(LOCK_NAME, Duration.ofSeconds(lockTtlSeconds));
+        if (lockToken == null) {
+            log.debug("Pending upload reconciler is already running on another node");
+            return;
+        }
+
+        try {
+            int removed = reconcile(LocalDateTime.now().minusSeconds(pendingTtlSeconds));
+            if (removed > 0) {
+                log.info("Removed {} abandoned uploads", removed);
+            }
+        } finally {
+            redisLock.release(LOCK_NAME, lockToken);
+        }
+    }
+
+    private int reconcile(LocalDateTime before) {
+        int removed = 0;
+        UUID afterId = FIRST_ID;
+        List<UUID> page;
+        do {
+            page = fileMetadataRepository.findStalePendingIds(before, afterId, batchSize);
+            if (page.isEmpty()) {
+                break;
+            }
+            afterId = page.get(page.size() - 1);
+
+            try {
+                // Rows are removed first: an object without a row is harmless, a row without its object is not
+                List<String> storageKeys = fileMetadataRepository.deletePending(page);
+                List<String> failedKeys = storageService.deleteFiles(storageKeys);
+                if (!failedKeys.isEmpty()) {
+                    log.warn("Could not remove {} objects of abandoned uploads, they are left orphaned: {}",
+                            failedKeys.size(), failedKeys);
+                }
+                removed += storageKeys.size();
+            } catch (RuntimeException e) {
+                log.warn("Error while removing a batch of {} abandoned uploads", page.size(), e);
+            }
+        } while (page.size() == batchSize);
+
+        return removed;
+    }
+}
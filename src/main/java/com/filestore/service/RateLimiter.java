@@ -0,0 +1,110 @@
+package com.filestore.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.List;
+
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class RateLimiter {
+
+    private static final String KEY_PREFIX = "filestore:ratelimit:";
+
+    // Lets a charge through whatever the balance, for costs only known after the request ran
+    public static final long ALWAYS = Long.MIN_VALUE / 2;
+
+    // After a Redis error the local buckets are used for a while instead of paying for a failing call per request
+    private static final long REDIS_BACKOFF_NANOS = Duration.ofSeconds(5).toNanos();
+
+    // KEYS: bucket; ARGV: capacity, refill per second, tokens required, cost.
+    // Returns 0 when allowed, otherwise the milliseconds until the required tokens are available.
+    private static final RedisScript<Long> TOKEN_BUCKET_SCRIPT = RedisScript.of("""
+            local capacity = tonumber(ARGV[1])
+            local rate = tonumber(ARGV[2])
+            local required = tonumber(ARGV[3])
+            local cost = tonumber(ARGV[4])
+            local time = redis.call('TIME')
+            local now = tonumber(time[1]) * 1000 + math.floor(tonumber(time[2]) / 1000)
+            local state = redis.call('HMGET', KEYS[1], 'tokens', 'ts')
+            local tokens = tonumber(state[1]) or capacity
+            local ts = tonumber(state[2]) or now
+            tokens = math.min(capacity, tokens + math.max(0, now - ts) * rate / 1000)
+            local allowed = tokens >= required
+            if allowed then
+                tokens = tokens - cost
+            end
+            redis.call('HSET', KEYS[1], 'tokens', tokens, 'ts', now)
+            redis.call('PEXPIRE', KEYS[1], math.ceil((capacity - tokens) / rate * 1000) + 1000)
+            if allowed then
+                return 0
+            end
+            return math.ceil((required - tokens) / rate * 1000)
+            """, Long.class);
+
+    private final StringRedisTemplate redisTemplate;
+
+    private final Cache<String, LocalBucket> localBuckets = Caffeine.newBuilder()
+            .maximumSize(100_000)
+            .expireAfterAccess(Duration.ofMinutes(10))
+            .build();
+
+    // nanoTime has an arbitrary origin, so the retry time starts from the current time rather than from zero
+    private volatile long redisRetryAtNanos = System.nanoTime();
+
+    public record Budget(String name, long capacity, double refillPerSecond) {
+    }
+
+    // Returns 0 when allowed, otherwise the milliseconds to wait before retrying
+    public long tryConsume(Budget budget, String subject, long required, long cost) {
+        String key = KEY_PREFIX + budget.name() + ":" + subject;
+
+        if (System.nanoTime() - redisRetryAtNanos >= 0) {
+            try {
+                Long waitMillis = redisTemplate.execute(TOKEN_BUCKET_SCRIPT, List.of(key),
+                        String.valueOf(budget.capacity()),
+                        String.valueOf(budget.refillPerSecond()),
+                        String.valueOf(required),
+                        String.valueOf(cost));
+                return waitMillis != null ? waitMillis : 0;
+            } catch (RuntimeException e) {
+                log.warn("Error while rate limiting with Redis, using local buckets", e);
+                redisRetryAtNanos = System.nanoTime() + REDIS_BACKOFF_NANOS;
+            }
+        }
+
+        // Local buckets limit per node, so a cluster admits up to one budget per node while Redis is down
+        return localBuckets.get(key, k -> new LocalBucket(budget)).tryConsume(required, cost);
+    }
+
+    private static class LocalBucket {
+
+        private final Budget budget;
+        private double tokens;
+        private long lastRefillNanos = System.nanoTime();
+
+        LocalBucket(Budget budget) {
+            this.budget = budget;
+            this.tokens = budget.capacity();
+        }
+
+        synchronized long tryConsume(long required, long cost) {
+            long now = System.nanoTime();
+            tokens = Math.min(budget.capacity(), tokens + (now - lastRefillNanos) * budget.refillPerSecond() / 1e9);
+            lastRefillNanos = now;
+
+            if (tokens >= required) {
+                tokens -= cost;
+                return 0;
+            }
+            return (long) Math.ceil((required - tokens) / budget.refillPerSecond() * 1000);
+        }
+    }
+}
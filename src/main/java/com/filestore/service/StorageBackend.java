@@ -0,0 +1,48 @@
+package com.filestore.service;
+
+import java.io.InputStream;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.OptionalLong;
+
+public interface StorageBackend {
+
+    String uploadStream(InputStream inputStream, long size, String contentType, String storageKey);
+
+    String composeFile(List<String> sourceKeys, String storageKey, String contentType);
+
+    InputStream downloadFile(String storageKey);
+
+    InputStream downloadFile(String storageKey, long offset, long length);
+
+    void deleteFile(String storageKey);
+
+    // Returns the keys that could not be deleted
+    List<String> deleteFiles(List<String> storageKeys);
+
+    // Empty when the object does not exist
+    OptionalLong objectSize(String storageKey);
+
+    default boolean fileExists(String storageKey) {
+        return objectSize(storageKey).isPresent();
+    }
+
+    // The file backing an object when it lives on this node's disk, which lets downloads use sendfile
+    default Optional<Path> localPath(String storageKey) {
+        return Optional.empty();
+    }
+
+    // URLs that let clients transfer an object directly with the store; empty when the backend has none
+    default Optional<String> presignedUploadUrl(String storageKey, Duration expiry) {
+        return Optional.empty();
+    }
+
+    // Response headers are overridden by the store, so the client sees the file's name and type
+    default Optional<String> presignedDownloadUrl(String storageKey, Map<String, String> responseHeaders,
+                                                  Duration expiry) {
+        return Optional.empty();
+    }
+}
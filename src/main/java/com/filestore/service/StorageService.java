@@ -1,120 +1,115 @@
 package com.filestore.service;
 
-import io.minio.*;
-import io.minio.errors.*;
-import jakarta.annotation.PostConstruct;
-import lombok.extern.slf4j.Slf4j;
-import org.springframework.beans.factory.annotation.Value;
+import com.filestore.exception.FileSizeLimitExceededException;
+import io.micrometer.observation.Observation;
+import io.micrometer.observation.ObservationRegistry;
+import lombok.RequiredArgsConstructor;
+import org.apache.commons.lang3.exception.ExceptionUtils;
 import org.springframework.stereotype.Service;
-import org.springframework.web.multipart.MultipartFile;
 
 import java.io.InputStream;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.OptionalLong;
+import java.util.function.Function;
 
 @Service
-@Slf4j
+@RequiredArgsConstructor
 public class StorageService {
 
-    @Value("${filestore.storage.minio.endpoint}")
-    private String minioEndpoint;
+    // MinIO or local disk, selected by filestore.storage.type
+    private final StorageBackend storageBackend;
+    private final HotObjectCache hotObjectCache;
+    private final ObservationRegistry observationRegistry;
 
-    @Value("${filestore.storage.minio.access-key}")
-    private String accessKey;
-
-    @Value("${filestore.storage.minio.secret-key}")
-    private String secretKey;
-
-    @Value("${filestore.storage.minio.bucket-name}")
-    private String bucketName;
-
-    private MinioClient minioClient;
-
-    @PostConstruct
-    public void init() {
+    public String uploadStream(InputStream inputStream, long size, String contentType, String storageKey) {
         try {
-            minioClient = MinioClient.builder()
-                    .endpoint(minioEndpoint)
-                    .credentials(accessKey, secretKey)
-                    .build();
-
-            boolean bucketExists = minioClient.bucketExists(
-                    BucketExistsArgs.builder().bucket(bucketName).build()
-            );
-
-            if (!bucketExists) {
-                minioClient.makeBucket(
-                        MakeBucketArgs.builder().bucket(bucketName).build()
-                );
-
-                log.info("Created MinIO bucket {}", bucketName);
-            } else {
-                log.info("MinIO bucket already exists {}", bucketName);
+            return observe("put", observation -> storageBackend.uploadStream(inputStream, size, contentType, storageKey));
+        } catch (RuntimeException e) {
+            // The size limit is enforced while the backend reads the body and surfaces wrapped in its errors
+            FileSizeLimitExceededException limitExceeded =
+                    ExceptionUtils.throwableOfType(e, FileSizeLimitExceededException.class);
+            if (limitExceeded != null) {
+                throw limitExceeded;
             }
-
-        } catch (Exception e) {
-            log.error("Error while initializing MinIO service", e);
-            throw new RuntimeException("Failed to initialize storage service" ,e);
+            throw e;
         }
     }
 
-    public String uploadFile(MultipartFile file, String storageKey) {
-        try {
-            minioClient.putObject(
-                    PutObjectArgs.builder()
-                            .bucket(bucketName)
-                            .object(storageKey)
-                            .stream(file.getInputStream(), file.getSize(), -1)
-                            .contentType(file.getContentType())
-                            .build()
-            );
-
-            log.info("Uploaded file {}", storageKey);
-            return storageKey;
-
-        } catch (Exception e) {
-            log.error("Error while uploading file to MinIO service", e);
-            throw new RuntimeException("Error while uploading file to MinIO service" ,e);
-        }
+    public String composeFile(List<String> sourceKeys, String storageKey, String contentType) {
+        return observe("compose", observation -> storageBackend.composeFile(sourceKeys, storageKey, contentType));
     }
 
     public InputStream downloadFile(String storageKey) {
-        try {
-            return minioClient.getObject(
-                    GetObjectArgs.builder()
-                            .bucket(bucketName)
-                            .object(storageKey)
-                            .build()
-            );
-        } catch (Exception e) {
-            log.info("Error while downloading file from MinIO service", e);
-            throw new RuntimeException("Error while downloading file from MinIO service" ,e);
-        }
+        return observe("get", observation -> {
+            InputStream cached = openCached(storageKey, 0, -1, observation);
+            return cached != null ? cached : storageBackend.downloadFile(storageKey);
+        });
+    }
+
+    public InputStream downloadFile(String storageKey, long offset, long length) {
+        return observe("get-range", observation -> {
+            InputStream cached = openCached(storageKey, offset, length, observation);
+            return cached != null ? cached : storageBackend.downloadFile(storageKey, offset, length);
+        });
     }
 
     public void deleteFile(String storageKey) {
-        try {
-            minioClient.removeObject(
-                    RemoveObjectArgs.builder()
-                            .bucket(bucketName)
-                            .object(storageKey)
-                            .build()
-            );
-        } catch (Exception e) {
-            log.info("Error while deleting file from MinIO service", e);
-            throw new RuntimeException("Error while deleting file from MinIO service" ,e);
-        }
+        observe("delete", observation -> {
+            storageBackend.deleteFile(storageKey);
+            return null;
+        });
+        hotObjectCache.invalidate(storageKey);
+    }
+
+    public List<String> deleteFiles(List<String> storageKeys) {
+        List<String> failedKeys = observe("delete-batch", observation -> storageBackend.deleteFiles(storageKeys));
+        storageKeys.forEach(hotObjectCache::invalidate);
+        return failedKeys;
     }
 
     public boolean fileExists(String storageKey) {
-        try {
-            minioClient.statObject(
-                    StatObjectArgs.builder()
-                            .bucket(bucketName)
-                            .object(storageKey)
-                            .build()
-            );
-            return true;
-        } catch (Exception e) {
-            return false;
+        return observe("exists", observation -> storageBackend.fileExists(storageKey));
+    }
+
+    public OptionalLong objectSize(String storageKey) {
+        return observe("stat", observation -> storageBackend.objectSize(storageKey));
+    }
+
+    public Optional<Path> localPath(String storageKey) {
+        return storageBackend.localPath(storageKey);
+    }
+
+    public Optional<String> presignedUploadUrl(String storageKey, Duration expiry) {
+        return storageBackend.presignedUploadUrl(storageKey, expiry);
+    }
+
+    public Optional<String> presignedDownloadUrl(String storageKey, Map<String, String> responseHeaders,
+                                                 Duration expiry) {
+        return storageBackend.presignedDownloadUrl(storageKey, responseHeaders, expiry);
+    }
+
+    // Timed as filestore.storage{operation,tier,error} and traced as a span, so a slow tier shows up in both
+    private <T> T observe(String operation, Function<Observation, T> action) {
+        Observation observation = Observation.createNotStarted("filestore.storage", observationRegistry)
+                .contextualName("storage " + operation)
+                .lowCardinalityKeyValue("operation", operation)
+                .lowCardinalityKeyValue("tier", "backend");
+        return observation.observe(() -> action.apply(observation));
+    }
+
+    private InputStream openCached(String storageKey, long offset, long length, Observation observation) {
+        // Objects already on this node's disk gain nothing from a second local copy
+        if (storageBackend.localPath(storageKey).isPresent()) {
+            return null;
+        }
+        InputStream cached = hotObjectCache.open(storageKey, offset, length);
+        if (cached != null) {
+            observation.lowCardinalityKeyValue("tier", "cache");
         }
+        return cached;
     }
 }
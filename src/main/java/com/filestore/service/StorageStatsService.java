@@ -0,0 +1,207 @@
+package com.filestore.service;
+
+import com.filestore.model.dto.StatsResponse;
+import com.filestore.model.dto.StorageTotals;
+import com.filestore.model.entity.FileMetadata;
+import com.filestore.repository.FileMetadataRepository;
+import com.filestore.util.RedisLock;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.ZSetOperations;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+
+// Stats are read from totals kept up to date in the same transactions that change the files, so polling them
+// never scans the files table; a periodic reconciliation corrects any drift
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class StorageStatsService {
+
+    private static final String LOCK_NAME = "storage-stats-reconciliation";
+
+    private static final String TOTALS_SQL = "INSERT INTO storage_stats (slot, active_files, bytes_used) " +
+            "VALUES (?, ?, ?) ON CONFLICT (slot) DO UPDATE SET " +
+            "active_files = storage_stats.active_files + EXCLUDED.active_files, " +
+            "bytes_used = storage_stats.bytes_used + EXCLUDED.bytes_used";
+
+    private static final String HOURLY_SQL = "INSERT INTO hourly_stats (bucket_start, slot, uploads, upload_bytes, downloads) " +
+            "VALUES (?, ?, ?, ?, ?) ON CONFLICT (bucket_start, slot) DO UPDATE SET " +
+            "uploads = hourly_stats.uploads + EXCLUDED.uploads, " +
+            "upload_bytes = hourly_stats.upload_bytes + EXCLUDED.upload_bytes, " +
+            "downloads = hourly_stats.downloads + EXCLUDED.downloads";
+
+    private final FileMetadataRepository fileMetadataRepository;
+    private final JdbcTemplate jdbcTemplate;
+    private final StringRedisTemplate redisTemplate;
+    private final PlatformTransactionManager transactionManager;
+    private final RedisLock redisLock;
+
+    @Value("${filestore.stats.slots}")
+    private Integer slots;
+
+    @Value("${filestore.stats.retention-hours}")
+    private Integer retentionHours;
+
+    // The most downloaded set is trimmed to this many files; scores are absolute counts, so trimming loses nothing
+    @Value("${filestore.stats.top-files-tracked}")
+    private Integer topFilesTracked;
+
+    @Value("${filestore.stats.lock-ttl-seconds}")
+    private Long lockTtlSeconds;
+
+    // Called inside the transaction that activates the files
+    public void recordUploads(int files, long bytes) {
+        int slot = randomSlot();
+        jdbcTemplate.update(TOTALS_SQL, slot, files, bytes);
+        jdbcTemplate.update(HOURLY_SQL, currentBucket(), slot, files, bytes, 0);
+    }
+
+    // Called inside the transaction that marks the files deleted
+    public void recordDeletions(int files, long bytes) {
+        jdbcTemplate.update(TOTALS_SQL, randomSlot(), -files, -bytes);
+    }
+
+    // Called inside the transaction that flushes the download counts
+    public void recordDownloads(long downloads) {
+        jdbcTemplate.update(HOURLY_SQL, currentBucket(), randomSlot(), 0, 0, downloads);
+    }
+
+    public StatsResponse getStats(int hours, int topFiles) {
+        Map<String, Object> totals = jdbcTemplate.queryForMap(
+                "SELECT COALESCE(SUM(active_files), 0) AS active_files, COALESCE(SUM(bytes_used), 0) AS bytes_used " +
+                        "FROM storage_stats");
+
+        List<StatsResponse.Interval> intervals = jdbcTemplate.query(
+                "SELECT bucket_start, SUM(uploads) AS uploads, SUM(upload_bytes) AS upload_bytes, " +
+                        "SUM(downloads) AS downloads FROM hourly_stats WHERE bucket_start >= ? " +
+                        "GROUP BY bucket_start ORDER BY bucket_start",
+                (rs, rowNum) -> StatsResponse.Interval.builder()
+                        .start(rs.getTimestamp("bucket_start").toLocalDateTime())
+                        .uploads(rs.getLong("uploads"))
+                        .uploadBytes(rs.getLong("upload_bytes"))
+                        .downloads(rs.getLong("downloads"))
+                        .build(),
+                Timestamp.valueOf(currentBucket().minusHours(hours - 1)));
+
+        return StatsResponse.builder()
+                .activeFiles(((Number) totals.get("active_files")).longValue())
+                .bytesUsed(((Number) totals.get("bytes_used")).longValue())
+                .intervals(intervals)
+                .topFiles(topFiles(topFiles))
+                .build();
+    }
+
+    public void reconcile() {
+        String lockToken = redisLock.tryAcquire(LOCK_NAME, Duration.ofSeconds(lockTtlSeconds));
+        if (lockToken == null) {
+            log.debug("Storage stats reconciliation is already running on another node");
+            return;
+        }
+
+        try {
+            reconcileTotals();
+
+            int purged = jdbcTemplate.update("DELETE FROM hourly_stats WHERE bucket_start < ?",
+                    Timestamp.valueOf(currentBucket().minusHours(retentionHours)));
+            if (purged > 0) {
+                log.debug("Purged {} hourly stats rows", purged);
+            }
+
+            redisTemplate.opsForZSet().removeRange(DownloadCounterService.TOP_KEY, 0, -topFilesTracked - 1);
+        } catch (RuntimeException e) {
+            log.warn("Error while reconciling storage stats", e);
+        } finally {
+            redisLock.release(LOCK_NAME, lockToken);
+        }
+    }
+
+    // Both sums are read from one snapshot, in which every committed change to the files has also changed
+    // the totals, so the difference is real drift; it is applied as a delta and races with nothing
+    private void reconcileTotals() {
+        TransactionTemplate snapshot = new TransactionTemplate(transactionManager);
+        snapshot.setIsolationLevel(TransactionDefinition.ISOLATION_REPEATABLE_READ);
+        snapshot.setReadOnly(true);
+
+        long[] drift = snapshot.execute(status -> {
+            StorageTotals actual = fileMetadataRepository.calculateTotals(FileMetadata.Status.ACTIVE);
+            Map<String, Object> counted = jdbcTemplate.queryForMap(
+                    "SELECT COALESCE(SUM(active_files), 0) AS active_files, COALESCE(SUM(bytes_used), 0) AS bytes_used " +
+                            "FROM storage_stats");
+            return new long[]{
+                    actual.activeFiles() - ((Number) counted.get("active_files")).longValue(),
+                    actual.bytesUsed() - ((Number) counted.get("bytes_used")).longValue()
+            };
+        });
+
+        if (drift[0] != 0 || drift[1] != 0) {
+            log.warn("Storage stats drifted by {} files and {} bytes, correcting", drift[0], drift[1]);
+            jdbcTemplate.update(TOTALS_SQL, 0, drift[0], drift[1]);
+        }
+    }
+
+    // Ranked in Redis, then resolved in one lookup; files deleted since are skipped
+    private List<StatsResponse.TopFile> topFiles(int limit) {
+        if (limit <= 0) {
+            return List.of();
+        }
+
+        Map<UUID, Long> ranking = new LinkedHashMap<>();
+        try {
+            Set<ZSetOperations.TypedTuple<String>> top = redisTemplate.opsForZSet()
+                    .reverseRangeWithScores(DownloadCounterService.TOP_KEY, 0, limit * 2L - 1);
+            if (top != null) {
+                top.forEach(entry -> ranking.put(UUID.fromString(entry.getValue()), entry.getScore().longValue()));
+            }
+        } catch (RuntimeException e) {
+            log.debug("Error while reading the download ranking from Redis", e);
+            return List.of();
+        }
+
+        Map<UUID, FileMetadata> files = new LinkedHashMap<>();
+        fileMetadataRepository.findAllById(ranking.keySet()).forEach(file -> files.put(file.getId(), file));
+
+        List<StatsResponse.TopFile> result = new ArrayList<>(limit);
+        for (Map.Entry<UUID, Long> entry : ranking.entrySet()) {
+            FileMetadata file = files.get(entry.getKey());
+            if (file == null || file.getIsDeleted() || file.getStatus() != FileMetadata.Status.ACTIVE
+                    || file.isExpired()) {
+                continue;
+            }
+            result.add(StatsResponse.TopFile.builder()
+                    .fileSize(file.getFileSize())
+                    .downloadCount(entry.getValue())
+                    .uploadDate(file.getUploadDate())
+                    .build());
+            if (result.size() == limit) {
+                break;
+            }
+        }
+        return result;
+    }
+
+    private int randomSlot() {
+        return ThreadLocalRandom.current().nextInt(slots);
+    }
+
+    private static LocalDateTime currentBucket() {
+        return LocalDateTime.now().truncatedTo(ChronoUnit.HOURS);
+    }
+}
@@ -0,0 +1,87 @@
+package com.filestore.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.observation.Observation;
+import io.micrometer.observation.ObservationRegistry;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Service;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+@Service
+@RequiredArgsConstructor
+public class TransferMetrics {
+
+    public static final String UPLOAD = "upload";
+    public static final String DOWNLOAD = "download";
+
+    private final MeterRegistry meterRegistry;
+    private final ObservationRegistry observationRegistry;
+
+    private final AtomicInteger activeUploads = new AtomicInteger();
+    private final AtomicInteger activeDownloads = new AtomicInteger();
+
+    private Counter bytesIn;
+    private Counter bytesOut;
+
+    @PostConstruct
+    public void init() {
+        bytesIn = Counter.builder("filestore.transfer.bytes")
+                .tag("direction", "in")
+                .baseUnit("bytes")
+                .register(meterRegistry);
+        bytesOut = Counter.builder("filestore.transfer.bytes")
+                .tag("direction", "out")
+                .baseUnit("bytes")
+                .register(meterRegistry);
+        Gauge.builder("filestore.transfer.active", activeUploads, AtomicInteger::get)
+                .tag("direction", UPLOAD)
+                .register(meterRegistry);
+        Gauge.builder("filestore.transfer.active", activeDownloads, AtomicInteger::get)
+                .tag("direction", DOWNLOAD)
+                .register(meterRegistry);
+    }
+
+    // Timed as filestore.transfer.phase{direction,phase,error} and traced as a child span of the request
+    public <T> T phase(String direction, String phase, Supplier<T> action) {
+        return Observation.createNotStarted("filestore.transfer.phase", observationRegistry)
+                .contextualName(direction + " " + phase)
+                .lowCardinalityKeyValue("direction", direction)
+                .lowCardinalityKeyValue("phase", phase)
+                .observe(action);
+    }
+
+    public void phase(String direction, String phase, Runnable action) {
+        phase(direction, phase, () -> {
+            action.run();
+            return null;
+        });
+    }
+
+    public void uploadStarted() {
+        activeUploads.incrementAndGet();
+    }
+
+    public void uploadFinished(long bytes) {
+        activeUploads.decrementAndGet();
+        bytesIn.increment(bytes);
+    }
+
+    public void downloadStarted() {
+        activeDownloads.incrementAndGet();
+    }
+
+    public void downloadFinished(long bytes) {
+        activeDownloads.decrementAndGet();
+        bytesOut.increment(bytes);
+    }
+
+    // Sendfile transfers run inside Tomcat after the handler returns, so only their size is known here
+    public void sentFile(long bytes) {
+        bytesOut.increment(bytes);
+    }
+}
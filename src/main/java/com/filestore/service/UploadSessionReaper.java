@@ -0,0 +1,139 @@
+package com.filestore.service;
+
+import com.filestore.model.entity.UploadSession;
+import com.filestore.repository.UploadSessionRepository;
+import com.filestore.util.RedisLock;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+// Aborts upload sessions nobody finished and removes what they wrote to storage, then purges old finished sessions
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class UploadSessionReaper {
+
+    private static final String LOCK_NAME = "upload-session-reaper";
+    private static final UUID FIRST_ID = new UUID(0, 0);
+
+    private final UploadSessionRepository uploadSessionRepository;
+    private final StorageService storageService;
+    private final RedisLock redisLock;
+
+    @Value("${filestore.upload.session-reaper.batch-size}")
+    private Integer batchSize;
+
+    // Sessions are left alone this long after they expire, so a chunk or direct PUT started just before expiry
+    // finishes before its object is removed
+    @Value("${filestore.upload.session-reaper.grace-seconds}")
+    private Long graceSeconds;
+
+    // Longer than any completion may take, so only completions whose node died are collected
+    @Value("${filestore.upload.session-reaper.completing-timeout-seconds}")
+    private Long completingTimeoutSeconds;
+
+    @Value("${filestore.upload.session-reaper.finished-retention-hours}")
+    private Long finishedRetentionHours;
+
+    @Value("${filestore.upload.session-reaper.lock-ttl-seconds}")
+    private Long lockTtlSeconds;
+
+    public void reapSessions() {
+        String lockToken = redisLock.tryAcquire(LOCK_NAME, Duration.ofSeconds(lockTtlSeconds));
+        if (lockToken == null) {
+            log.debug("Upload session reaper is already running on another node");
+            return;
+        }
+
+        try {
+            LocalDateTime now = LocalDateTime.now();
+            int aborted = reap(now.minusSeconds(graceSeconds), now.minusSeconds(completingTimeoutSeconds), now);
+            if (aborted > 0) {
+                log.info("Aborted {} abandoned upload sessions", aborted);
+            }
+
+            int purged = purge(now.minusHours(finishedRetentionHours));
+            if (purged > 0) {
+                log.info("Purged {} finished upload sessions", purged);
+            }
+        } finally {
+            redisLock.release(LOCK_NAME, lockToken);
+        }
+    }
+
+    private int reap(LocalDateTime expiredBefore, LocalDateTime completingBefore, LocalDateTime now) {
+        int aborted = 0;
+        UUID afterId = FIRST_ID;
+        List<UUID> page;
+        do {
+            page = uploadSessionRepository.findAbandonedIds(expiredBefore, completingBefore, afterId, batchSize);
+            if (page.isEmpty()) {
+                break;
+            }
+            afterId = page.get(page.size() - 1);
+
+            try {
+                // Read before aborting, since the status they were abandoned in decides what is removed
+                Map<UUID, UploadSession> sessions = new HashMap<>();
+                uploadSessionRepository.findAllById(page).forEach(session -> sessions.put(session.getId(), session));
+
+                // Sessions are aborted before their objects are removed, so no client can complete one meanwhile
+                List<UUID> abortedIds = uploadSessionRepository.abortAbandoned(page, expiredBefore, completingBefore, now);
+
+                List<String> storageKeys = new ArrayList<>();
+                for (UUID id : abortedIds) {
+                    UploadSession session = sessions.get(id);
+                    if (session != null) {
+                        storageKeys.addAll(objectsOf(session));
+                    }
+                }
+
+                List<String> failedKeys = storageService.deleteFiles(storageKeys);
+                if (!failedKeys.isEmpty()) {
+                    log.warn("Could not remove {} objects of abandoned upload sessions, they are left orphaned: {}",
+                            failedKeys.size(), failedKeys);
+                }
+                aborted += abortedIds.size();
+            } catch (RuntimeException e) {
+                log.warn("Error while aborting a batch of {} abandoned upload sessions", page.size(), e);
+            }
+        } while (page.size() == batchSize);
+
+        return aborted;
+    }
+
+    // One short transaction per batch, like the archiving of deleted files
+    private int purge(LocalDateTime before) {
+        int purged = 0;
+        try {
+            int removed;
+            do {
+                removed = uploadSessionRepository.purgeFinished(before, batchSize);
+                purged += removed;
+            } while (removed == batchSize);
+        } catch (RuntimeException e) {
+            log.warn("Error while purging finished upload sessions", e);
+        }
+        return purged;
+    }
+
+    // Every chunk key is removed, not just the recorded ones, since a node may die between storing a chunk and
+    // recording it. A completion that stopped has already reserved a file row for the final object: the object
+    // is live if the completion got that far, and is otherwise removed with the row by the pending upload
+    // reconciler, so only the chunks of such a session are removed here.
+    private List<String> objectsOf(UploadSession session) {
+        if (!Boolean.TRUE.equals(session.getDirect())) {
+            return session.getChunkKeys();
+        }
+        return session.getStatus() == UploadSession.Status.ACTIVE ? List.of(session.getStorageKey()) : List.of();
+    }
+}
@@ -0,0 +1,297 @@
+package com.filestore.service;
+
+import com.filestore.exception.FileExpiredException;
+import com.filestore.exception.FileNotFoundException;
+import com.filestore.model.dto.UploadResponse;
+import com.filestore.model.dto.UploadSessionResponse;
+import com.filestore.model.entity.FileMetadata;
+import com.filestore.model.entity.UploadSession;
+import com.filestore.repository.UploadSessionRepository;
+import com.filestore.util.FileValidator;
+import com.filestore.util.PasswordUtil;
+import com.filestore.util.TokenGenerator;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.InputStream;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.OptionalLong;
+import java.util.UUID;
+
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class UploadSessionService {
+
+    // S3 rejects multipart parts (other than the last one) below 5 MiB
+    private static final long MIN_CHUNK_SIZE = 5L * 1024 * 1024;
+
+    private final UploadSessionRepository uploadSessionRepository;
+    private final StorageService storageService;
+    private final FileService fileService;
+    private final TokenGenerator tokenGenerator;
+    private final FileValidator fileValidator;
+    private final PasswordUtil passwordUtil;
+
+    @Value("${filestore.presigned.enabled}")
+    private boolean presignedEnabled;
+
+    @Value("${filestore.presigned.upload-url-expiry-seconds}")
+    private Long uploadUrlExpirySeconds;
+
+    @Value("${filestore.upload.chunk-size-bytes}")
+    private Long chunkSize;
+
+    @Value("${filestore.upload.session-expiry-hours}")
+    private Integer sessionExpiryHours;
+
+    public UploadSessionResponse initUpload(
+            String fileName,
+            Long fileSize,
+            String contentType,
+            Integer expiryHours,
+            String password,
+            Integer maxDownloads,
+            String uploaderIp
+    ) {
+        fileValidator.validateFile(fileName, fileSize);
+
+        long effectiveChunkSize = Math.max(chunkSize, MIN_CHUNK_SIZE);
+        int totalChunks = (int) ((fileSize + effectiveChunkSize - 1) / effectiveChunkSize);
+
+        String fileExtension = fileValidator.getFileExtension(fileName);
+        String storageKey = "uploads/" + tokenGenerator.generateStorageFileName(fileExtension);
+
+        UploadSession session = UploadSession.builder()
+                .originalFileName(fileName)
+                .fileSize(fileSize)
+                .mimeType(contentType != null && !contentType.isEmpty() ? contentType : "application/octet-stream")
+                .storageKey(storageKey)
+                .chunkSize(effectiveChunkSize)
+                .totalChunks(totalChunks)
+                .passwordHash(passwordUtil.hashPassword(password))
+                .expiryHours(expiryHours)
+                .maxDownloads(maxDownloads)
+                .uploaderIp(uploaderIp)
+                .status(UploadSession.Status.ACTIVE)
+                .expiresAt(LocalDateTime.now().plusHours(sessionExpiryHours))
+                .build();
+
+        uploadSessionRepository.save(session);
+
+        log.debug("Upload session started: {} ({} chunks, uploadId: {})", fileName, totalChunks, session.getId());
+
+        return buildResponse(session);
+    }
+
+    // The client PUTs the whole file to the returned URL and then completes the session as usual
+    public UploadSessionResponse initDirectUpload(
+            String fileName,
+            Long fileSize,
+            String contentType,
+            Integer expiryHours,
+            String password,
+            Integer maxDownloads,
+            String uploaderIp
+    ) {
+        if (!presignedEnabled) {
+            throw new IllegalArgumentException("Direct uploads are not enabled");
+        }
+
+        fileValidator.validateFile(fileName, fileSize);
+
+        String fileExtension = fileValidator.getFileExtension(fileName);
+        String storageKey = "uploads/" + tokenGenerator.generateStorageFileName(fileExtension);
+
+        String uploadUrl = storageService.presignedUploadUrl(storageKey, Duration.ofSeconds(uploadUrlExpirySeconds))
+                .orElseThrow(() -> new IllegalArgumentException("Direct uploads are not supported by this storage"));
+
+        UploadSession session = UploadSession.builder()
+                .originalFileName(fileName)
+                .fileSize(fileSize)
+                .mimeType(contentType != null && !contentType.isEmpty() ? contentType : "application/octet-stream")
+                .storageKey(storageKey)
+                .chunkSize(fileSize)
+                .totalChunks(1)
+                .direct(true)
+                .passwordHash(passwordUtil.hashPassword(password))
+                .expiryHours(expiryHours)
+                .maxDownloads(maxDownloads)
+                .uploaderIp(uploaderIp)
+                .status(UploadSession.Status.ACTIVE)
+                .expiresAt(LocalDateTime.now().plusHours(sessionExpiryHours))
+                .build();
+
+        uploadSessionRepository.save(session);
+
+        log.debug("Direct upload session started: {} (uploadId: {})", fileName, session.getId());
+
+        UploadSessionResponse response = buildResponse(session);
+        response.setUploadUrl(uploadUrl);
+        return response;
+    }
+
+    public UploadSessionResponse getUpload(UUID uploadId) {
+        return buildResponse(findSession(uploadId));
+    }
+
+    public void uploadChunk(UUID uploadId, int chunkIndex, InputStream data, long contentLength) {
+        UploadSession session = findActiveSession(uploadId);
+
+        if (Boolean.TRUE.equals(session.getDirect())) {
+            throw new IllegalArgumentException("Direct uploads are sent to their upload URL, not in chunks");
+        }
+
+        if (chunkIndex < 0 || chunkIndex >= session.getTotalChunks()) {
+            throw new IllegalArgumentException(String.format("Chunk index %d is out of range (0-%d)",
+                    chunkIndex, session.getTotalChunks() - 1));
+        }
+
+        long expectedLength = session.getChunkLength(chunkIndex);
+        if (contentLength != expectedLength) {
+            throw new IllegalArgumentException(String.format("Chunk %d must be exactly %d bytes, got %d",
+                    chunkIndex, expectedLength, contentLength));
+        }
+
+        // The chunk is streamed straight from the request into MinIO; re-sending a chunk overwrites it
+        storageService.uploadStream(data, expectedLength, "application/octet-stream", session.getChunkKey(chunkIndex));
+        uploadSessionRepository.markChunkUploaded(uploadId, chunkIndex);
+
+        log.debug("Chunk {} of {} uploaded (uploadId: {})", chunkIndex, session.getTotalChunks(), uploadId);
+    }
+
+    public UploadResponse completeUpload(UUID uploadId) {
+        UploadSession session = findSession(uploadId);
+
+        // A client retrying after a dropped response gets the original result back
+        if (session.getStatus() == UploadSession.Status.COMPLETED) {
+            return fileService.getUploadResponse(session.getFileId());
+        }
+
+        if (session.getStatus() != UploadSession.Status.ACTIVE || session.isExpired()) {
+            throw new FileExpiredException("Upload session is no longer active");
+        }
+
+        boolean direct = Boolean.TRUE.equals(session.getDirect());
+        List<Integer> missingChunks = direct ? List.of() : session.getMissingChunks();
+        if (!missingChunks.isEmpty()) {
+            throw new IllegalArgumentException("Upload is incomplete, missing chunks: " + missingChunks);
+        }
+
+        if (uploadSessionRepository.transitionStatus(uploadId, UploadSession.Status.ACTIVE, UploadSession.Status.COMPLETING, LocalDateTime.now()) == 0) {
+            throw new IllegalStateException("Upload is already being completed");
+        }
+
+        // The file row is reserved before the final object exists, so a crash while assembling it leaves
+        // something for the reconciler to clean up
+        FileMetadata pending;
+        try {
+            pending = fileService.reserve(List.of(fileService.prepare(
+                    fileService.reserveTokens(),
+                    session.getStorageKey(),
+                    session.getOriginalFileName(),
+                    session.getFileSize(),
+                    session.getMimeType(),
+                    session.getExpiryHours(),
+                    session.getMaxDownloads(),
+                    session.getUploaderIp()
+            ))).get(0);
+        } catch (RuntimeException e) {
+            uploadSessionRepository.transitionStatus(uploadId, UploadSession.Status.COMPLETING, UploadSession.Status.ACTIVE, LocalDateTime.now());
+            throw e;
+        }
+
+        List<String> chunkKeys = session.getChunkKeys();
+        UploadResponse response;
+        try {
+            if (direct) {
+                verifyDirectUpload(session);
+            } else {
+                storageService.composeFile(chunkKeys, session.getStorageKey(), session.getMimeType());
+            }
+            pending.setStoredSize(session.getFileSize());
+            response = fileService.activate(List.of(pending), session.getPasswordHash()).get(0);
+        } catch (RuntimeException e) {
+            // Chunks are still in place, so the client can retry; a directly uploaded object is kept for the same reason
+            fileService.discard(List.of(pending), !direct);
+            uploadSessionRepository.transitionStatus(uploadId, UploadSession.Status.COMPLETING, UploadSession.Status.ACTIVE, LocalDateTime.now());
+            throw e;
+        }
+
+        if (!direct) {
+            storageService.deleteFiles(chunkKeys);
+        }
+
+        session.setStatus(UploadSession.Status.COMPLETED);
+        session.setFileId(UUID.fromString(response.getFileId()));
+        uploadSessionRepository.save(session);
+
+        log.debug("Upload session completed: {} (uploadId: {})", session.getOriginalFileName(), uploadId);
+
+        return response;
+    }
+
+    public void abortUpload(UUID uploadId) {
+        UploadSession session = findSession(uploadId);
+
+        if (uploadSessionRepository.transitionStatus(uploadId, UploadSession.Status.ACTIVE, UploadSession.Status.ABORTED, LocalDateTime.now()) == 0) {
+            throw new FileExpiredException("Upload session is no longer active");
+        }
+
+        if (Boolean.TRUE.equals(session.getDirect())) {
+            storageService.deleteFile(session.getStorageKey());
+        } else {
+            storageService.deleteFiles(session.getUploadedChunks().stream()
+                    .map(session::getChunkKey)
+                    .toList());
+        }
+
+        log.info("Upload session aborted: {} (uploadId: {})", session.getOriginalFileName(), uploadId);
+    }
+
+    // The presigned PUT is not limited by the app, so the stored object is checked against what was validated
+    private void verifyDirectUpload(UploadSession session) {
+        OptionalLong size = storageService.objectSize(session.getStorageKey());
+        if (size.isEmpty()) {
+            throw new IllegalArgumentException("File has not been uploaded yet");
+        }
+
+        if (size.getAsLong() != session.getFileSize()) {
+            storageService.deleteFile(session.getStorageKey());
+            throw new IllegalArgumentException(String.format("Uploaded file must be exactly %d bytes, got %d",
+                    session.getFileSize(), size.getAsLong()));
+        }
+    }
+
+    private UploadSession findSession(UUID uploadId) {
+        return uploadSessionRepository.findById(uploadId)
+                .orElseThrow(() -> new FileNotFoundException("Upload session not found"));
+    }
+
+    private UploadSession findActiveSession(UUID uploadId) {
+        UploadSession session = findSession(uploadId);
+
+        if (session.getStatus() != UploadSession.Status.ACTIVE || session.isExpired()) {
+            throw new FileExpiredException("Upload session is no longer active");
+        }
+
+        return session;
+    }
+
+    private UploadSessionResponse buildResponse(UploadSession session) {
+        return UploadSessionResponse.builder()
+                .uploadId(session.getId().toString())
+                .fileName(session.getOriginalFileName())
+                .fileSize(session.getFileSize())
+                .chunkSize(session.getChunkSize())
+                .totalChunks(session.getTotalChunks())
+                .missingChunks(session.getMissingChunks())
+                .status(session.getStatus().name())
+                .expiresAt(session.getExpiresAt())
+                .build();
+    }
+}
@@ -0,0 +1,77 @@
+package com.filestore.util;
+
+import com.filestore.exception.RangeNotSatisfiableException;
+import com.filestore.model.dto.ByteRange;
+import com.filestore.model.entity.FileMetadata;
+import org.springframework.http.HttpRange;
+import org.springframework.stereotype.Component;
+
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.List;
+
+@Component
+public class ByteRangeResolver {
+
+    public List<ByteRange> resolve(String rangeHeader, String ifRange, FileMetadata metadata) {
+        // An empty list means the whole file is sent with 200 OK
+        if (rangeHeader == null || rangeHeader.isBlank()) {
+            return List.of();
+        }
+
+        if (ifRange != null && !ifRange.isBlank() && !matchesValidator(ifRange.trim(), metadata)) {
+            return List.of();
+        }
+
+        List<HttpRange> httpRanges;
+        try {
+            httpRanges = HttpRange.parseRanges(rangeHeader);
+        } catch (IllegalArgumentException e) {
+            // A malformed Range header is ignored rather than rejected (RFC 9110, section 14.2)
+            return List.of();
+        }
+
+        long fileSize = metadata.getFileSize();
+        List<ByteRange> ranges = new ArrayList<>(httpRanges.size());
+        long totalLength = 0;
+
+        for (HttpRange httpRange : httpRanges) {
+            try {
+                ByteRange range = new ByteRange(httpRange.getRangeStart(fileSize), httpRange.getRangeEnd(fileSize));
+                totalLength += range.length();
+                ranges.add(range);
+            } catch (IllegalArgumentException e) {
+                throw new RangeNotSatisfiableException(
+                        String.format("Requested range '%s' is not satisfiable", rangeHeader), fileSize);
+            }
+        }
+
+        // Overlapping ranges that add up to more than the file are cheaper to serve as a single 200
+        if (ranges.size() > 1 && totalLength > fileSize) {
+            return List.of();
+        }
+
+        return ranges;
+    }
+
+    // A download is counted when it includes the first byte: a full file, or ranges that together cover it, always
+    // do, while resuming an interrupted download from further in does not count again
+    public static boolean includesStart(List<ByteRange> ranges) {
+        return ranges.isEmpty() || ranges.stream().anyMatch(range -> range.start() == 0);
+    }
+
+    private boolean matchesValidator(String ifRange, FileMetadata metadata) {
+        if (ifRange.startsWith("\"") || ifRange.startsWith("W/")) {
+            return ifRange.equals(metadata.getEntityTag());
+        }
+
+        try {
+            ZonedDateTime date = ZonedDateTime.parse(ifRange, DateTimeFormatter.RFC_1123_DATE_TIME);
+            return date.toInstant().getEpochSecond() == metadata.getLastModified().getEpochSecond();
+        } catch (DateTimeParseException e) {
+            return false;
+        }
+    }
+}
@@ -0,0 +1,14 @@
+package com.filestore.util;
+
+import jakarta.servlet.http.HttpServletRequest;
+import org.springframework.stereotype.Component;
+
+@Component
+public class ClientIpResolver {
+
+    // Forwarded headers are applied by Tomcat's RemoteIpValve (server.forward-headers-strategy=native) only when
+    // the connection comes from a trusted proxy, so a client cannot pick its own address by sending them
+    public String getClientIp(HttpServletRequest request) {
+        return request.getRemoteAddr();
+    }
+}
@@ -0,0 +1,98 @@
+package com.filestore.util;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.Locale;
+
+@Component
+public class CompressionPolicy {
+
+    public static final String GZIP = "gzip";
+
+    @Value("${filestore.compression.enabled}")
+    private boolean enabled;
+
+    @Value("${filestore.compression.level}")
+    private Integer level;
+
+    @Value("${filestore.compression.min-size-bytes}")
+    private Long minSizeBytes;
+
+    @Value("${filestore.compression.extensions:}")
+    private List<String> extensions;
+
+    @Value("${filestore.compression.mime-types:}")
+    private List<String> mimeTypes;
+
+    @Value("${filestore.compression.skip-extensions:}")
+    private List<String> skipExtensions;
+
+    // Returns the codec to store the upload with, or null to store it as received
+    public String selectCodec(String extension, String mimeType, long contentLength) {
+        if (!enabled || (contentLength >= 0 && contentLength < minSizeBytes)) {
+            return null;
+        }
+
+        String normalizedExtension = extension.toLowerCase(Locale.ROOT);
+        if (skipExtensions.contains(normalizedExtension)) {
+            return null;
+        }
+
+        if (extensions.contains(normalizedExtension) || matchesMimeType(mimeType)) {
+            return GZIP;
+        }
+        return null;
+    }
+
+    public int getLevel() {
+        return level;
+    }
+
+    // An explicit entry for the codec wins over "*"; either one is refused with q=0
+    public boolean accepts(String acceptEncoding, String codec) {
+        if (acceptEncoding == null) {
+            return false;
+        }
+
+        Boolean wildcard = null;
+        for (String entry : acceptEncoding.split(",")) {
+            String[] parts = entry.trim().split(";");
+            String coding = parts[0].trim();
+            boolean accepted = true;
+            for (int i = 1; i < parts.length; i++) {
+                String parameter = parts[i].trim();
+                if (parameter.startsWith("q=") && isZero(parameter.substring(2))) {
+                    accepted = false;
+                }
+            }
+
+            if (coding.equalsIgnoreCase(codec)) {
+                return accepted;
+            }
+            if (coding.equals("*")) {
+                wildcard = accepted;
+            }
+        }
+        return Boolean.TRUE.equals(wildcard);
+    }
+
+    private boolean matchesMimeType(String mimeType) {
+        try {
+            MediaType mediaType = MediaType.parseMediaType(mimeType);
+            return mimeTypes.stream().map(MediaType::parseMediaType).anyMatch(type -> type.includes(mediaType));
+        } catch (IllegalArgumentException e) {
+            return false;
+        }
+    }
+
+    private boolean isZero(String quality) {
+        try {
+            return Double.parseDouble(quality.trim()) == 0;
+        } catch (NumberFormatException e) {
+            return false;
+        }
+    }
+}
@@ -5,6 +5,7 @@ import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 import org.springframework.web.multipart.MultipartFile;
 
+import java.io.InputStream;
 import java.util.List;
 
 @Component
@@ -22,15 +23,29 @@ public class FileValidator {
             throw new IllegalArgumentException("File is empty");
         }
 
-        if (file.getSize() > maxFileSize) {
+        validateFile(file.getOriginalFilename(), file.getSize());
+    }
+
+    public void validateFile(String fileName, long fileSize) {
+
+        if (fileSize <= 0) {
+            throw new IllegalArgumentException("File is empty");
+        }
+
+        if (fileSize > maxFileSize) {
             throw new FileSizeLimitExceededException(
                     String.format("File size (%d bytes) exceeds maximum allowed size (%d bytes)",
-                            file.getSize(), maxFileSize)
+                            fileSize, maxFileSize)
             );
         }
 
+        validateFileName(fileName);
+    }
+
+    public void validateFileName(String fileName) {
+
         if (!allowedExtensions.isEmpty()) {
-            String extension = getFileExtension(file.getOriginalFilename());
+            String extension = getFileExtension(fileName);
             if (!allowedExtensions.contains(extension.toLowerCase())) {
                 throw new IllegalArgumentException(String.format("File type '.%s' is not allowed. Allowed types: %s",
                         extension, String.join(", ", allowedExtensions))
@@ -39,6 +54,10 @@ public class FileValidator {
         }
     }
 
+    public SizeLimitingInputStream limitSize(InputStream inputStream) {
+        return new SizeLimitingInputStream(inputStream, maxFileSize);
+    }
+
     public String getFileExtension(String filename) {
         if (filename == null || filename.isEmpty()) {
             return "";
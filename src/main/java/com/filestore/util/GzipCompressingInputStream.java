@@ -0,0 +1,87 @@
+package com.filestore.util;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedInputStream;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterInputStream;
+
+// Reads as the gzip encoding of the wrapped stream, so compression can run inside a pull-based upload
+public class GzipCompressingInputStream extends InputStream {
+
+    // Magic, deflate, no flags, no modification time, unknown OS: identical content compresses to identical bytes
+    private static final byte[] HEADER = {0x1f, (byte) 0x8b, 8, 0, 0, 0, 0, 0, 0, (byte) 0xff};
+
+    private final CheckedInputStream source;
+    private final Deflater deflater;
+    private final DeflaterInputStream deflated;
+    private int headerPosition;
+    private byte[] trailer;
+    private int trailerPosition;
+
+    public GzipCompressingInputStream(InputStream in, int level) {
+        this.source = new CheckedInputStream(in, new CRC32());
+        this.deflater = new Deflater(level, true);
+        this.deflated = new DeflaterInputStream(source, deflater, 64 * 1024);
+    }
+
+    @Override
+    public int read() throws IOException {
+        byte[] single = new byte[1];
+        int n = read(single, 0, 1);
+        return n == -1 ? -1 : single[0] & 0xff;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        if (len == 0) {
+            return 0;
+        }
+
+        if (headerPosition < HEADER.length) {
+            int n = Math.min(len, HEADER.length - headerPosition);
+            System.arraycopy(HEADER, headerPosition, b, off, n);
+            headerPosition += n;
+            return n;
+        }
+
+        if (trailer == null) {
+            int n;
+            do {
+                n = deflated.read(b, off, len);
+            } while (n == 0);
+            if (n > 0) {
+                return n;
+            }
+            trailer = trailer(source.getChecksum().getValue(), deflater.getBytesRead());
+        }
+
+        if (trailerPosition == trailer.length) {
+            return -1;
+        }
+        int n = Math.min(len, trailer.length - trailerPosition);
+        System.arraycopy(trailer, trailerPosition, b, off, n);
+        trailerPosition += n;
+        return n;
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            deflated.close();
+        } finally {
+            deflater.end();
+        }
+    }
+
+    // CRC-32 and the uncompressed size modulo 2^32, both little-endian
+    private static byte[] trailer(long crc, long size) {
+        byte[] trailer = new byte[8];
+        for (int i = 0; i < 4; i++) {
+            trailer[i] = (byte) (crc >>> (8 * i));
+            trailer[4 + i] = (byte) (size >>> (8 * i));
+        }
+        return trailer;
+    }
+}
@@ -0,0 +1,62 @@
+package com.filestore.util;
+
+import com.filestore.exception.FileSizeLimitExceededException;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+public class SizeLimitingInputStream extends FilterInputStream {
+
+    private final long maxBytes;
+    private long byteCount;
+
+    public SizeLimitingInputStream(InputStream in, long maxBytes) {
+        super(in);
+        this.maxBytes = maxBytes;
+    }
+
+    @Override
+    public int read() throws IOException {
+        int b = super.read();
+        if (b != -1) {
+            count(1);
+        }
+        return b;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        int n = super.read(b, off, len);
+        if (n > 0) {
+            count(n);
+        }
+        return n;
+    }
+
+    @Override
+    public long skip(long n) throws IOException {
+        long skipped = super.skip(n);
+        count(skipped);
+        return skipped;
+    }
+
+    @Override
+    public boolean markSupported() {
+        return false;
+    }
+
+    public long getByteCount() {
+        return byteCount;
+    }
+
+    private void count(long n) {
+        byteCount += n;
+
+        // Fails the read that crosses the limit, so the upload is aborted before the rest is sent on
+        if (byteCount > maxBytes) {
+            throw new FileSizeLimitExceededException(
+                    String.format("File size exceeds maximum allowed size (%d bytes)", maxBytes));
+        }
+    }
+}
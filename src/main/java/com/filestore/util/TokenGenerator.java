@@ -2,19 +2,38 @@ package com.filestore.util;
 
 import org.springframework.stereotype.Component;
 
+import java.nio.charset.StandardCharsets;
+import java.security.DrbgParameters;
+import java.security.NoSuchAlgorithmException;
 import java.security.SecureRandom;
-import java.util.Base64;
+import java.util.Arrays;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.locks.ReentrantLock;
 
 @Component
 public class TokenGenerator {
 
-    private static final SecureRandom secureRandom = new SecureRandom();
-    private static final Base64.Encoder base64Encoder = Base64.getUrlEncoder().withoutPadding();
+    private static final byte[] BASE64_URL_ALPHABET =
+            "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789-_".getBytes(StandardCharsets.US_ASCII);
+
+    private static final byte[] DELETE_TOKEN_PREFIX = "del_".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] NO_AFFIX = new byte[0];
+
+    // Random bytes drawn from a generator per refill; tokens are sliced off so most calls skip the DRBG entirely
+    private static final int BATCH_SIZE = 4096;
+
+    // Independent generators spread concurrent uploads instead of serializing them on one SecureRandom
+    private final Stripe[] stripes;
+
+    public TokenGenerator() {
+        stripes = new Stripe[Runtime.getRuntime().availableProcessors() * 2];
+        for (int i = 0; i < stripes.length; i++) {
+            stripes[i] = new Stripe(newGenerator());
+        }
+    }
 
     public String generateToken(int length) {
-        byte[] bytes = new byte[length];
-        secureRandom.nextBytes(bytes);
-        return base64Encoder.encodeToString(bytes);
+        return encode(NO_AFFIX, length);
     }
 
     public String generateShareToken() {
@@ -22,10 +41,87 @@ public class TokenGenerator {
     }
 
     public String generateDeleteToken() {
-        return "del_" + generateToken(12);
+        return encode(DELETE_TOKEN_PREFIX, 12);
     }
 
     public String generateStorageFileName(String originalExtension) {
-        return generateToken(16) + "." + originalExtension;
+        // Appended as a String: the extension may be any Unicode text, while the encoded part is pure ASCII
+        return encode(NO_AFFIX, 16) + "." + originalExtension;
+    }
+
+    // URL-safe Base64 without padding, written with the ASCII prefix into one buffer so each token is one String
+    private String encode(byte[] prefix, int length) {
+        byte[] random = new byte[length];
+        stripes[ThreadLocalRandom.current().nextInt(stripes.length)].nextBytes(random);
+
+        int encodedLength = (length * 4 + 2) / 3;
+        byte[] out = new byte[prefix.length + encodedLength];
+        System.arraycopy(prefix, 0, out, 0, prefix.length);
+
+        int in = 0;
+        int pos = prefix.length;
+        while (in + 3 <= length) {
+            int bits = (random[in++] & 0xff) << 16 | (random[in++] & 0xff) << 8 | (random[in++] & 0xff);
+            out[pos++] = BASE64_URL_ALPHABET[bits >>> 18];
+            out[pos++] = BASE64_URL_ALPHABET[(bits >>> 12) & 0x3f];
+            out[pos++] = BASE64_URL_ALPHABET[(bits >>> 6) & 0x3f];
+            out[pos++] = BASE64_URL_ALPHABET[bits & 0x3f];
+        }
+        int remaining = length - in;
+        if (remaining == 1) {
+            int bits = (random[in] & 0xff) << 4;
+            out[pos++] = BASE64_URL_ALPHABET[bits >>> 6];
+            out[pos++] = BASE64_URL_ALPHABET[bits & 0x3f];
+        } else if (remaining == 2) {
+            int bits = ((random[in] & 0xff) << 8 | (random[in + 1] & 0xff)) << 2;
+            out[pos++] = BASE64_URL_ALPHABET[bits >>> 12];
+            out[pos++] = BASE64_URL_ALPHABET[(bits >>> 6) & 0x3f];
+            out[pos++] = BASE64_URL_ALPHABET[bits & 0x3f];
+        }
+
+        return new String(out, StandardCharsets.ISO_8859_1);
+    }
+
+    private static SecureRandom newGenerator() {
+        try {
+            return SecureRandom.getInstance("DRBG",
+                    DrbgParameters.instantiation(256, DrbgParameters.Capability.RESEED_ONLY, null));
+        } catch (NoSuchAlgorithmException e) {
+            return new SecureRandom();
+        }
+    }
+
+    private static class Stripe {
+
+        // Not synchronized: a monitor would pin virtual threads while the DRBG refills
+        private final ReentrantLock lock = new ReentrantLock();
+        private final SecureRandom random;
+        private final byte[] batch = new byte[BATCH_SIZE];
+        private int position = BATCH_SIZE;
+
+        Stripe(SecureRandom random) {
+            this.random = random;
+        }
+
+        void nextBytes(byte[] bytes) {
+            if (bytes.length > BATCH_SIZE) {
+                random.nextBytes(bytes);
+                return;
+            }
+
+            lock.lock();
+            try {
+                if (position + bytes.length > BATCH_SIZE) {
+                    random.nextBytes(batch);
+                    position = 0;
+                }
+                System.arraycopy(batch, position, bytes, 0, bytes.length);
+                // Handed-out bytes are cleared so they never linger in the batch
+                Arrays.fill(batch, position, position + bytes.length, (byte) 0);
+                position += bytes.length;
+            } finally {
+                lock.unlock();
+            }
+        }
     }
 }
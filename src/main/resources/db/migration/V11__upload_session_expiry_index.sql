@@ -0,0 +1,3 @@
+-- The upload session reaper's scans: open sessions past their expiry, and finished sessions past retention.
+-- Built concurrently like the other indexes on tables that take writes.
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_upload_sessions_expires_at ON upload_sessions (expires_at);
@@ -0,0 +1,2 @@
+-- The reaper removes collections once they have expired and their files are gone.
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_collections_expiry_date ON collections (expiry_date);
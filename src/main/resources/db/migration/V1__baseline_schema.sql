@@ -0,0 +1,22 @@
+-- The files table as Hibernate generated it before migrations were introduced. Databases created by ddl-auto
+-- are baselined at version 0 and run every migration; each statement is idempotent, so whatever state such a
+-- database was left in, the migrations only add what it is missing.
+
+CREATE TABLE IF NOT EXISTS files (
+    id                  UUID PRIMARY KEY,
+    original_file_name  VARCHAR(255) NOT NULL,
+    file_size           BIGINT NOT NULL,
+    mime_type           VARCHAR(255) NOT NULL,
+    storage_key         VARCHAR(255) NOT NULL,
+    share_token         VARCHAR(255) NOT NULL UNIQUE,
+    delete_token        VARCHAR(255) NOT NULL UNIQUE,
+    password_hash       VARCHAR(255),
+    upload_date         TIMESTAMP(6) NOT NULL,
+    expiry_date         TIMESTAMP(6) NOT NULL,
+    download_count      INTEGER NOT NULL,
+    max_downloads       INTEGER,
+    is_deleted          BOOLEAN NOT NULL,
+    uploader_ip         VARCHAR(255),
+    created_at          TIMESTAMP(6) NOT NULL,
+    updated_at          TIMESTAMP(6) NOT NULL
+);
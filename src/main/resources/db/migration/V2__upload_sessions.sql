@@ -0,0 +1,26 @@
+-- Resumable chunked uploads
+CREATE TABLE IF NOT EXISTS upload_sessions (
+    id                  UUID PRIMARY KEY,
+    original_file_name  VARCHAR(255) NOT NULL,
+    file_size           BIGINT NOT NULL,
+    mime_type           VARCHAR(255) NOT NULL,
+    storage_key         VARCHAR(255) NOT NULL,
+    chunk_size          BIGINT NOT NULL,
+    total_chunks        INTEGER NOT NULL,
+    password_hash       VARCHAR(255),
+    expiry_hours        INTEGER,
+    max_downloads       INTEGER,
+    uploader_ip         VARCHAR(255),
+    status              VARCHAR(255) NOT NULL
+                            CHECK (status IN ('ACTIVE', 'COMPLETING', 'COMPLETED', 'ABORTED')),
+    file_id             UUID,
+    expires_at          TIMESTAMP(6) NOT NULL,
+    created_at          TIMESTAMP(6) NOT NULL,
+    updated_at          TIMESTAMP(6) NOT NULL
+);
+
+CREATE TABLE IF NOT EXISTS upload_session_chunks (
+    upload_session_id   UUID NOT NULL REFERENCES upload_sessions (id),
+    chunk_index         INTEGER NOT NULL,
+    PRIMARY KEY (upload_session_id, chunk_index)
+);
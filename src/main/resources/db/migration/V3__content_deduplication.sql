@@ -0,0 +1,10 @@
+-- Uploads are deduplicated by the SHA-256 of their stored bytes; one object per hash, reference counted
+CREATE TABLE IF NOT EXISTS blobs (
+    content_hash        VARCHAR(64) PRIMARY KEY,
+    storage_key         VARCHAR(255) NOT NULL,
+    size                BIGINT NOT NULL,
+    ref_count           INTEGER NOT NULL,
+    created_at          TIMESTAMP(6) NOT NULL
+);
+
+ALTER TABLE files ADD COLUMN IF NOT EXISTS content_hash VARCHAR(64);
@@ -0,0 +1,3 @@
+-- Compressible uploads are stored gzipped; null compression means stored as uploaded
+ALTER TABLE files ADD COLUMN IF NOT EXISTS compression VARCHAR(16);
+ALTER TABLE files ADD COLUMN IF NOT EXISTS stored_size BIGINT;
@@ -0,0 +1,2 @@
+-- Sessions uploaded in one PUT to a presigned URL instead of in chunks
+ALTER TABLE upload_sessions ADD COLUMN IF NOT EXISTS direct BOOLEAN;
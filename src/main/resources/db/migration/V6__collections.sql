@@ -0,0 +1,12 @@
+-- Files uploaded in one batch, downloadable together as a zip
+CREATE TABLE IF NOT EXISTS collections (
+    id                  UUID PRIMARY KEY,
+    share_token         VARCHAR(255) NOT NULL UNIQUE,
+    password_hash       VARCHAR(255),
+    expiry_date         TIMESTAMP(6) NOT NULL,
+    uploader_ip         VARCHAR(255),
+    created_at          TIMESTAMP(6) NOT NULL
+);
+
+ALTER TABLE files ADD COLUMN IF NOT EXISTS collection_id UUID;
+CREATE INDEX IF NOT EXISTS idx_files_collection_id ON files (collection_id);
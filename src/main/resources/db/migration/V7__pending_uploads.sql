@@ -0,0 +1,2 @@
+-- Rows are inserted PENDING before their object is written; every existing row is a completed upload
+ALTER TABLE files ADD COLUMN IF NOT EXISTS status VARCHAR(16) NOT NULL DEFAULT 'ACTIVE';
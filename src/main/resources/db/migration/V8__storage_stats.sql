@@ -0,0 +1,24 @@
+-- Running totals of live files, striped over slot rows
+CREATE TABLE IF NOT EXISTS storage_stats (
+    slot                INTEGER PRIMARY KEY,
+    active_files        BIGINT NOT NULL,
+    bytes_used          BIGINT NOT NULL
+);
+
+-- Uploads and downloads per hour, striped the same way
+CREATE TABLE IF NOT EXISTS hourly_stats (
+    bucket_start        TIMESTAMP(6) NOT NULL,
+    slot                INTEGER NOT NULL,
+    uploads             BIGINT NOT NULL,
+    upload_bytes        BIGINT NOT NULL,
+    downloads           BIGINT NOT NULL,
+    PRIMARY KEY (bucket_start, slot)
+);
+
+-- Files uploaded before the totals existed are counted once, instead of waiting for the first reconciliation
+INSERT INTO storage_stats (slot, active_files, bytes_used)
+SELECT 0, totals.active_files, totals.bytes_used
+FROM (SELECT count(*) AS active_files, COALESCE(sum(file_size), 0) AS bytes_used
+      FROM files
+      WHERE is_deleted = false AND status = 'ACTIVE') totals
+WHERE NOT EXISTS (SELECT 1 FROM storage_stats);
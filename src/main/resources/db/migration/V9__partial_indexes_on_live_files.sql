@@ -0,0 +1,20 @@
+-- Built concurrently so uploads and downloads keep running on large tables; Flyway runs a script made only of
+-- concurrent index statements outside a transaction.
+
+-- The reaper's expiry scan. Only live rows are indexed, so the index stays small however many deleted rows
+-- the table holds, and the reaper reads just the rows that expired since its last sweep.
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_files_live_expiry ON files (expiry_date) WHERE is_deleted = false;
+
+-- Uploads abandoned while PENDING; normally a handful of rows at any time.
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_files_pending_created ON files (created_at) WHERE status = 'PENDING';
+
+-- Deleted rows waiting to be moved to files_archive.
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_files_deleted_updated ON files (updated_at) WHERE is_deleted = true;
+
+-- Recent uploads per client address.
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_files_uploader_ip_upload_date ON files (uploader_ip, upload_date);
+
+-- Most files are not part of a collection, so those rows are left out of the index.
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_files_collection_id_partial ON files (collection_id)
+    WHERE collection_id IS NOT NULL;
+DROP INDEX CONCURRENTLY IF EXISTS idx_files_collection_id;
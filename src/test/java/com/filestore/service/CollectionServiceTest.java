@@ -0,0 +1,34 @@
+package com.filestore.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class CollectionServiceTest {
+
+    private final Set<String> used = new HashSet<>();
+
+    @Test
+    void duplicateNamesGetACopyNumber() {
+        assertThat(CollectionService.uniqueEntryName("report.pdf", used)).isEqualTo("report.pdf");
+        assertThat(CollectionService.uniqueEntryName("report.pdf", used)).isEqualTo("report (1).pdf");
+        assertThat(CollectionService.uniqueEntryName("report.pdf", used)).isEqualTo("report (2).pdf");
+    }
+
+    @Test
+    void pathComponentsAreStripped() {
+        assertThat(CollectionService.uniqueEntryName("../../etc/passwd", used)).isEqualTo("passwd");
+        assertThat(CollectionService.uniqueEntryName("..\\..\\boot.ini", used)).isEqualTo("boot.ini");
+        assertThat(CollectionService.uniqueEntryName("/tmp/report.pdf", used)).isEqualTo("report.pdf");
+    }
+
+    @Test
+    void namesWithoutAFileComponentFallBack() {
+        assertThat(CollectionService.uniqueEntryName("..", used)).isEqualTo("file");
+        assertThat(CollectionService.uniqueEntryName("uploads/", used)).isEqualTo("file (1)");
+        assertThat(CollectionService.uniqueEntryName("a/..", used)).isEqualTo("file (2)");
+    }
+}
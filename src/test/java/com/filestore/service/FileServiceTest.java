@@ -0,0 +1,107 @@
+package com.filestore.service;
+
+import com.filestore.exception.FileExpiredException;
+import com.filestore.model.entity.FileMetadata;
+import com.filestore.repository.FileMetadataRepository;
+import com.filestore.util.ByteRangeResolver;
+import com.filestore.util.CompressionPolicy;
+import com.filestore.util.FileValidator;
+import com.filestore.util.PasswordUtil;
+import com.filestore.util.TokenGenerator;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.micrometer.observation.ObservationRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.io.ByteArrayInputStream;
+import java.time.LocalDateTime;
+import java.util.Optional;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class FileServiceTest {
+
+    private final FileMetadataCache fileMetadataCache = mock(FileMetadataCache.class);
+    private final DownloadCounterService downloadCounterService = mock(DownloadCounterService.class);
+    private final StorageService storageService = mock(StorageService.class);
+
+    private final FileMetadata metadata = FileMetadata.builder()
+            .id(UUID.randomUUID())
+            .originalFileName("report.pdf")
+            .fileSize(1000L)
+            .mimeType("application/pdf")
+            .storageKey("files/report.pdf")
+            .shareToken("abc123")
+            .uploadDate(LocalDateTime.now().minusHours(1))
+            .expiryDate(LocalDateTime.now().plusHours(1))
+            .maxDownloads(1)
+            .build();
+
+    private FileService fileService;
+
+    @BeforeEach
+    void setUp() {
+        fileService = new FileService(
+                mock(FileMetadataRepository.class),
+                fileMetadataCache,
+                downloadCounterService,
+                storageService,
+                mock(BlobService.class),
+                mock(TokenGenerator.class),
+                mock(FileValidator.class),
+                mock(PasswordUtil.class),
+                mock(PasswordVerificationService.class),
+                new ByteRangeResolver(),
+                new TransferMetrics(new SimpleMeterRegistry(), ObservationRegistry.NOOP),
+                mock(CompressionPolicy.class),
+                mock(StorageStatsService.class),
+                mock(JdbcTemplate.class),
+                mock(PlatformTransactionManager.class));
+
+        when(fileMetadataCache.findByShareToken("abc123")).thenReturn(Optional.of(metadata));
+        when(storageService.localPath(anyString())).thenReturn(Optional.empty());
+        when(storageService.downloadFile(anyString(), anyLong(), anyLong()))
+                .thenAnswer(invocation -> new ByteArrayInputStream(new byte[0]));
+    }
+
+    @Test
+    void rangeFromTheStartCountsAsDownload() {
+        // The limit check on the metadata may be stale; the counter is what enforces the limit
+        when(downloadCounterService.tryIncrement(metadata)).thenReturn(true, false);
+
+        assertThat(download("bytes=0-").ranges).hasSize(1);
+        assertThatThrownBy(() -> download("bytes=0-"))
+                .isInstanceOf(FileExpiredException.class)
+                .hasMessageContaining("Download limit reached");
+    }
+
+    @Test
+    void multipleRangesCoveringTheFileCountAsDownload() {
+        when(downloadCounterService.tryIncrement(metadata)).thenReturn(false);
+
+        assertThatThrownBy(() -> download("bytes=500-,0-499"))
+                .isInstanceOf(FileExpiredException.class);
+    }
+
+    @Test
+    void resumedDownloadIsNotCountedAgain() {
+        assertThat(download("bytes=500-").ranges).hasSize(1);
+
+        verify(downloadCounterService, never()).tryIncrement(any());
+    }
+
+    private FileService.FileDownloadResult download(String range) {
+        return fileService.downloadFile("abc123", null, null, "127.0.0.1", range, null, null);
+    }
+}
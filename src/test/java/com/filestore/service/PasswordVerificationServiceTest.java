@@ -0,0 +1,115 @@
+package com.filestore.service;
+
+import com.filestore.exception.InvalidPasswordException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class PasswordVerificationServiceTest {
+
+    private static final String HASH = "$2a$10$notCheckedBecauseTheTokenIsValid";
+
+    private PasswordVerificationService service;
+
+    @BeforeEach
+    void setUp() {
+        // Token handling needs only the key and the lifetime; verification and attempt tracking are not reached
+        service = newService("first-secret");
+    }
+
+    @Test
+    void acceptsTokenForItsSubject() {
+        String token = service.issueToken("abc123");
+
+        assertThat(service.isValidToken("abc123", token)).isTrue();
+    }
+
+    @Test
+    void rejectsExpiredToken() {
+        ReflectionTestUtils.setField(service, "sessionTtlSeconds", -1L);
+        String token = service.issueToken("abc123");
+
+        assertThat(service.isValidToken("abc123", token)).isFalse();
+    }
+
+    @Test
+    void rejectsTamperedSignature() {
+        String token = service.issueToken("abc123");
+        // The first signature character carries only data bits; the last one also carries ignored padding bits
+        int first = token.indexOf('.') + 1;
+        String tampered = token.substring(0, first) + (token.charAt(first) == 'A' ? 'B' : 'A')
+                + token.substring(first + 1);
+
+        assertThat(service.isValidToken("abc123", tampered)).isFalse();
+    }
+
+    @Test
+    void rejectsExtendedExpiry() {
+        String token = service.issueToken("abc123");
+        int separator = token.indexOf('.');
+        long expiresAt = Long.parseLong(token.substring(0, separator));
+
+        assertThat(service.isValidToken("abc123", (expiresAt + 3600) + token.substring(separator))).isFalse();
+    }
+
+    @Test
+    void rejectsTokenSignedWithAnotherKey() {
+        String token = newService("second-secret").issueToken("abc123");
+
+        assertThat(service.isValidToken("abc123", token)).isFalse();
+    }
+
+    @Test
+    void rejectsMalformedTokens() {
+        String token = service.issueToken("abc123");
+        String signature = token.substring(token.indexOf('.'));
+
+        assertThat(service.isValidToken("abc123", null)).isFalse();
+        assertThat(service.isValidToken("abc123", "")).isFalse();
+        assertThat(service.isValidToken("abc123", "no-separator")).isFalse();
+        assertThat(service.isValidToken("abc123", signature)).isFalse();
+        assertThat(service.isValidToken("abc123", "9999999999.")).isFalse();
+        assertThat(service.isValidToken("abc123", "soon" + signature)).isFalse();
+        assertThat(service.isValidToken("abc123", "99999999999999999999" + signature)).isFalse();
+        assertThat(service.isValidToken("abc123", "9999999999.not*base64!")).isFalse();
+    }
+
+    @Test
+    void tokensAreNotValidAcrossSubjects() {
+        String fileToken = service.issueToken("abc123");
+        String collectionToken = service.issueToken("collection:abc123");
+
+        assertThat(service.isValidToken("collection:abc123", fileToken)).isFalse();
+        assertThat(service.isValidToken("abc123", collectionToken)).isFalse();
+        assertThat(service.isValidToken("abc124", fileToken)).isFalse();
+    }
+
+    @Test
+    void validTokenSkipsThePasswordCheck() {
+        String token = service.issueToken("abc123");
+
+        assertThat(service.authorize("abc123", HASH, null, token, "127.0.0.1")).isNull();
+    }
+
+    @Test
+    void invalidTokenStillRequiresThePassword() {
+        String token = service.issueToken("collection:abc123");
+
+        assertThatThrownBy(() -> service.authorize("abc123", HASH, null, token, "127.0.0.1"))
+                .isInstanceOf(InvalidPasswordException.class);
+    }
+
+    private static PasswordVerificationService newService(String secret) {
+        PasswordVerificationService service = new PasswordVerificationService(null, null, null);
+        ReflectionTestUtils.setField(service, "sessionTtlSeconds", 3600L);
+        ReflectionTestUtils.setField(service, "sessionKey",
+                new SecretKeySpec(secret.getBytes(StandardCharsets.UTF_8), "HmacSHA256"));
+        return service;
+    }
+}
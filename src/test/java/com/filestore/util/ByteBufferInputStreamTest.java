@@ -0,0 +1,25 @@
+package com.filestore.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ByteBufferInputStreamTest {
+
+    @Test
+    void readsRemainingBytesOfTheBuffer() throws Exception {
+        ByteBuffer buffer = ByteBuffer.wrap(new byte[]{1, 2, 3, 4, 5}).slice(1, 3);
+
+        assertThat(new ByteBufferInputStream(buffer).readAllBytes()).containsExactly(2, 3, 4);
+    }
+
+    @Test
+    void returnsUnsignedBytesAndEndOfStream() {
+        ByteBufferInputStream in = new ByteBufferInputStream(ByteBuffer.wrap(new byte[]{(byte) 0xFF}));
+
+        assertThat(in.read()).isEqualTo(255);
+        assertThat(in.read()).isEqualTo(-1);
+    }
+}
@@ -0,0 +1,84 @@
+package com.filestore.util;
+
+import com.filestore.exception.RangeNotSatisfiableException;
+import com.filestore.model.dto.ByteRange;
+import com.filestore.model.entity.FileMetadata;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class ByteRangeResolverTest {
+
+    private final ByteRangeResolver resolver = new ByteRangeResolver();
+
+    private final FileMetadata metadata = FileMetadata.builder()
+            .id(UUID.randomUUID())
+            .fileSize(1000L)
+            .uploadDate(LocalDateTime.now().minusHours(1))
+            .build();
+
+    @Test
+    void noRangeHeaderMeansFullDownload() {
+        assertThat(resolver.resolve(null, null, metadata)).isEmpty();
+    }
+
+    @Test
+    void resolvesSingleAndSuffixRanges() {
+        assertThat(resolver.resolve("bytes=100-199", null, metadata))
+                .containsExactly(new ByteRange(100, 199));
+        assertThat(resolver.resolve("bytes=900-", null, metadata))
+                .containsExactly(new ByteRange(900, 999));
+        assertThat(resolver.resolve("bytes=-10", null, metadata))
+                .containsExactly(new ByteRange(990, 999));
+    }
+
+    @Test
+    void resolvesMultipleRanges() {
+        List<ByteRange> ranges = resolver.resolve("bytes=0-9,500-509", null, metadata);
+
+        assertThat(ranges).containsExactly(new ByteRange(0, 9), new ByteRange(500, 509));
+    }
+
+    @Test
+    void malformedRangeIsIgnored() {
+        assertThat(resolver.resolve("items=0-9", null, metadata)).isEmpty();
+    }
+
+    @Test
+    void rangeBeyondFileSizeIsNotSatisfiable() {
+        assertThatThrownBy(() -> resolver.resolve("bytes=1000-1100", null, metadata))
+                .isInstanceOf(RangeNotSatisfiableException.class);
+    }
+
+    @Test
+    void ifRangeWithCurrentValidatorsKeepsRange() {
+        String lastModified = DateTimeFormatter.RFC_1123_DATE_TIME
+                .format(metadata.getLastModified().atZone(ZoneId.of("GMT")));
+
+        assertThat(resolver.resolve("bytes=0-9", metadata.getEntityTag(), metadata)).hasSize(1);
+        assertThat(resolver.resolve("bytes=0-9", lastModified, metadata)).hasSize(1);
+    }
+
+    @Test
+    void ifRangeWithStaleValidatorFallsBackToFullDownload() {
+        assertThat(resolver.resolve("bytes=0-9", "\"other\"", metadata)).isEmpty();
+        assertThat(resolver.resolve("bytes=0-9", "W/" + metadata.getEntityTag(), metadata)).isEmpty();
+        assertThat(resolver.resolve("bytes=0-9", "Tue, 01 Jan 2019 00:00:00 GMT", metadata)).isEmpty();
+    }
+
+    @Test
+    void rangesFromTheFirstByteStartADownload() {
+        assertThat(ByteRangeResolver.includesStart(List.of())).isTrue();
+        assertThat(ByteRangeResolver.includesStart(resolver.resolve("bytes=0-", null, metadata))).isTrue();
+        assertThat(ByteRangeResolver.includesStart(resolver.resolve("bytes=-1000", null, metadata))).isTrue();
+        assertThat(ByteRangeResolver.includesStart(resolver.resolve("bytes=500-,0-499", null, metadata))).isTrue();
+        assertThat(ByteRangeResolver.includesStart(resolver.resolve("bytes=500-", null, metadata))).isFalse();
+    }
+}
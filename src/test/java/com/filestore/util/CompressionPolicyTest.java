@@ -0,0 +1,94 @@
+package com.filestore.util;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class CompressionPolicyTest {
+
+    private final CompressionPolicy policy = new CompressionPolicy();
+
+    @BeforeEach
+    void configure() {
+        ReflectionTestUtils.setField(policy, "enabled", true);
+        ReflectionTestUtils.setField(policy, "level", 6);
+        ReflectionTestUtils.setField(policy, "minSizeBytes", 1024L);
+        ReflectionTestUtils.setField(policy, "extensions", List.of("txt", "doc"));
+        ReflectionTestUtils.setField(policy, "mimeTypes", List.of("text/*", "application/json"));
+        ReflectionTestUtils.setField(policy, "skipExtensions", List.of("zip", "png"));
+    }
+
+    @Test
+    void acceptsGzipWhenListed() {
+        assertThat(policy.accepts("gzip", CompressionPolicy.GZIP)).isTrue();
+        assertThat(policy.accepts("deflate, GZIP;q=0.5", CompressionPolicy.GZIP)).isTrue();
+        assertThat(policy.accepts("br, deflate", CompressionPolicy.GZIP)).isFalse();
+    }
+
+    @Test
+    void refusesGzipWithZeroQuality() {
+        assertThat(policy.accepts("gzip;q=0", CompressionPolicy.GZIP)).isFalse();
+        assertThat(policy.accepts("gzip; q=0.000", CompressionPolicy.GZIP)).isFalse();
+        assertThat(policy.accepts("gzip;q=0.001", CompressionPolicy.GZIP)).isTrue();
+    }
+
+    @Test
+    void explicitEntryWinsOverWildcard() {
+        assertThat(policy.accepts("*;q=0, gzip", CompressionPolicy.GZIP)).isTrue();
+        assertThat(policy.accepts("gzip, *;q=0", CompressionPolicy.GZIP)).isTrue();
+        assertThat(policy.accepts("*, gzip;q=0", CompressionPolicy.GZIP)).isFalse();
+    }
+
+    @Test
+    void wildcardAppliesWithoutExplicitEntry() {
+        assertThat(policy.accepts("*", CompressionPolicy.GZIP)).isTrue();
+        assertThat(policy.accepts("br, *;q=0", CompressionPolicy.GZIP)).isFalse();
+    }
+
+    @Test
+    void missingOrEmptyHeaderAcceptsNothing() {
+        assertThat(policy.accepts(null, CompressionPolicy.GZIP)).isFalse();
+        assertThat(policy.accepts("", CompressionPolicy.GZIP)).isFalse();
+        assertThat(policy.accepts("identity", CompressionPolicy.GZIP)).isFalse();
+    }
+
+    @Test
+    void selectsGzipByExtensionOrMimeType() {
+        assertThat(policy.selectCodec("TXT", "application/octet-stream", 4096)).isEqualTo(CompressionPolicy.GZIP);
+        assertThat(policy.selectCodec("log", "text/plain", 4096)).isEqualTo(CompressionPolicy.GZIP);
+        assertThat(policy.selectCodec("json", "application/json; charset=utf-8", 4096))
+                .isEqualTo(CompressionPolicy.GZIP);
+        assertThat(policy.selectCodec("bin", "application/octet-stream", 4096)).isNull();
+    }
+
+    @Test
+    void skippedExtensionsWinOverMimeType() {
+        assertThat(policy.selectCodec("zip", "text/plain", 4096)).isNull();
+        assertThat(policy.selectCodec("PNG", "text/plain", 4096)).isNull();
+    }
+
+    @Test
+    void smallUploadsAreStoredAsReceived() {
+        assertThat(policy.selectCodec("txt", "text/plain", 1023)).isNull();
+        assertThat(policy.selectCodec("txt", "text/plain", 1024)).isEqualTo(CompressionPolicy.GZIP);
+        // Streamed uploads of unknown size are not held back by the minimum
+        assertThat(policy.selectCodec("txt", "text/plain", -1)).isEqualTo(CompressionPolicy.GZIP);
+    }
+
+    @Test
+    void invalidMimeTypeFallsBackToExtension() {
+        assertThat(policy.selectCodec("bin", "not a mime type", 4096)).isNull();
+        assertThat(policy.selectCodec("txt", "not a mime type", 4096)).isEqualTo(CompressionPolicy.GZIP);
+    }
+
+    @Test
+    void disabledPolicyNeverCompresses() {
+        ReflectionTestUtils.setField(policy, "enabled", false);
+
+        assertThat(policy.selectCodec("txt", "text/plain", 4096)).isNull();
+    }
+}
@@ -0,0 +1,65 @@
+package com.filestore.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPInputStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class GzipCompressingInputStreamTest {
+
+    @Test
+    void roundTripsThroughGzipInputStream() throws IOException {
+        byte[] text = "the quick brown fox jumps over the lazy dog\n".repeat(10_000).getBytes(StandardCharsets.UTF_8);
+        byte[] random = new byte[300_000];
+        new Random(42).nextBytes(random);
+
+        for (byte[] data : new byte[][]{new byte[0], "a".getBytes(StandardCharsets.UTF_8), text, random}) {
+            byte[] compressed = compress(data);
+            try (InputStream in = new GZIPInputStream(new ByteArrayInputStream(compressed))) {
+                assertThat(in.readAllBytes()).isEqualTo(data);
+            }
+        }
+    }
+
+    @Test
+    void compressesRepetitiveContent() throws IOException {
+        byte[] text = "line of log output\n".repeat(50_000).getBytes(StandardCharsets.UTF_8);
+
+        assertThat(compress(text).length).isLessThan(text.length / 20);
+    }
+
+    @Test
+    void identicalContentCompressesToIdenticalBytes() throws IOException {
+        byte[] text = "same content\n".repeat(1_000).getBytes(StandardCharsets.UTF_8);
+
+        assertThat(compress(text)).isEqualTo(compress(text));
+    }
+
+    @Test
+    void singleByteReadsProduceTheSameStream() throws IOException {
+        byte[] text = "byte at a time\n".repeat(1_000).getBytes(StandardCharsets.UTF_8);
+
+        try (InputStream in = new GzipCompressingInputStream(new ByteArrayInputStream(text), Deflater.DEFAULT_COMPRESSION)) {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            int b;
+            while ((b = in.read()) != -1) {
+                out.write(b);
+            }
+            assertThat(out.toByteArray()).isEqualTo(compress(text));
+        }
+    }
+
+    private static byte[] compress(byte[] data) throws IOException {
+        try (InputStream in = new GzipCompressingInputStream(new ByteArrayInputStream(data), Deflater.DEFAULT_COMPRESSION)) {
+            return in.readAllBytes();
+        }
+    }
+}
@@ -0,0 +1,28 @@
+package com.filestore.util;
+
+import com.filestore.exception.FileSizeLimitExceededException;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class SizeLimitingInputStreamTest {
+
+    @Test
+    void countsBytesWithinLimit() throws Exception {
+        SizeLimitingInputStream in = new SizeLimitingInputStream(new ByteArrayInputStream(new byte[100]), 100);
+
+        assertThat(in.readAllBytes()).hasSize(100);
+        assertThat(in.getByteCount()).isEqualTo(100);
+    }
+
+    @Test
+    void abortsReadThatCrossesLimit() {
+        InputStream in = new SizeLimitingInputStream(new ByteArrayInputStream(new byte[101]), 100);
+
+        assertThatThrownBy(in::readAllBytes).isInstanceOf(FileSizeLimitExceededException.class);
+    }
+}
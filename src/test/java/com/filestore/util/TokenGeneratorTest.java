@@ -0,0 +1,52 @@
+package com.filestore.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Base64;
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class TokenGeneratorTest {
+
+    private final TokenGenerator tokenGenerator = new TokenGenerator();
+
+    @Test
+    void encodesLikeUrlSafeBase64WithoutPadding() {
+        for (int length = 1; length <= 40; length++) {
+            String token = tokenGenerator.generateToken(length);
+
+            assertThat(token).matches("[A-Za-z0-9_-]+");
+            assertThat(token).hasSize(Base64.getUrlEncoder().withoutPadding().encodeToString(new byte[length]).length());
+            assertThat(Base64.getUrlDecoder().decode(token)).hasSize(length);
+        }
+    }
+
+    @Test
+    void addsPrefixesAndExtensions() {
+        assertThat(tokenGenerator.generateShareToken()).hasSize(12);
+        assertThat(tokenGenerator.generateDeleteToken()).startsWith("del_").hasSize(20);
+        assertThat(tokenGenerator.generateStorageFileName("pdf")).endsWith(".pdf").hasSize(26);
+    }
+
+    @Test
+    void keepsNonAsciiExtensionsIntact() {
+        assertThat(tokenGenerator.generateStorageFileName("données")).endsWith(".données").hasSize(30);
+        assertThat(tokenGenerator.generateStorageFileName("文档")).endsWith(".文档").hasSize(25);
+    }
+
+    @Test
+    void tokensAreDistinctAcrossBatchRefills() {
+        Set<String> tokens = new HashSet<>();
+        for (int i = 0; i < 10_000; i++) {
+            tokens.add(tokenGenerator.generateShareToken());
+        }
+        assertThat(tokens).hasSize(10_000);
+    }
+
+    @Test
+    void generatesTokensLargerThanOneBatch() {
+        assertThat(Base64.getUrlDecoder().decode(tokenGenerator.generateToken(5000))).hasSize(5000);
+    }
+}